@@ -0,0 +1,77 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.getProperty;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Gives the benchmarks access to the PostgreSQL instance configured through the system properties 'benchmark.datasource.*'.
+ * Benchmarks run single threaded, so one connection (which is reused by all transactions) is enough and keeps the cost of
+ * opening connections out of the measurements.
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    private static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/postgres";
+
+    private final SingleConnectionDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    BenchmarkDatabase() {
+        dataSource = new SingleConnectionDataSource(getProperty("benchmark.datasource.url", DEFAULT_URL),
+            getProperty("benchmark.datasource.username", "postgres"), getProperty("benchmark.datasource.password", ""), true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Returns a repository which is set up like the one of the application, except that it uses the given chunk size and that
+     * it does not cache any content (so that the content is always read from the database).
+     */
+    DocumentRepository documentRepository(int contentChunkSize) {
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setContentChunkSize(contentChunkSize);
+        documentProperties.setContentCacheMaximumBytes(0);
+
+        DocumentConfiguration documentConfiguration = new DocumentConfiguration();
+        return new DocumentRepository(jdbcTemplate, documentConfiguration.contentBufferPool(documentProperties),
+            documentConfiguration.documentMetadataCache(documentProperties),
+            documentConfiguration.documentContentCache(documentProperties), new LargeObjectContentStorage(jdbcTemplate),
+            new InlineContentStorage(jdbcTemplate, documentProperties),
+            documentConfiguration.contentCompressionPolicy(documentProperties), new DocumentMetrics());
+    }
+
+    /**
+     * Executes the given work inside a transaction (which is what the application does for each request).
+     */
+    <T> T inTransaction(Work<T> work) {
+        return transactionTemplate.execute(status -> {
+            try {
+                return work.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        dataSource.destroy();
+    }
+
+    interface Work<T> {
+
+        T execute() throws Exception;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the Content-Disposition header of a download and parsing the one of a raw upload.
+ */
+@BenchmarkMode(AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class ContentDispositionUtilsBenchmark {
+
+    @Param({ "test.txt", "Quarterly report of the sales department (final version, 2019-06-30).pdf" })
+    private String filename;
+
+    private String contentDisposition;
+
+    @Setup
+    public void setUp() {
+        contentDisposition = "attachment; filename=\"" + filename + "\"; size=4711";
+    }
+
+    @Benchmark
+    public String attachment() {
+        return ContentDispositionUtils.attachment(filename);
+    }
+
+    @Benchmark
+    public String inline() {
+        return ContentDispositionUtils.inline(filename);
+    }
+
+    @Benchmark
+    public String filename() {
+        return ContentDispositionUtils.filename(contentDisposition);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.nanoTime;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.nullOutputStream;
+import static org.openjdk.jmh.annotations.Level.Iteration;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures storing and reading content end-to-end against PostgreSQL (see {@link BenchmarkDatabase}). Small content is stored
+ * inline, everything above the inline content threshold as large object.
+ */
+@BenchmarkMode(AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DocumentRepositoryBenchmark {
+
+    @Param({ "0", "1024", "65536", "1048576", "16777216", "268435456" })
+    private long contentLength;
+
+    private BenchmarkDatabase benchmarkDatabase;
+
+    private DocumentRepository documentRepository;
+
+    private Document document;
+
+    private final List<String> savedIds = newArrayList();
+
+    // Every saved content differs, otherwise the repository would just share the content saved first.
+    private long seed = nanoTime();
+
+    @Setup
+    public void setUp() {
+        benchmarkDatabase = new BenchmarkDatabase();
+        documentRepository = benchmarkDatabase.documentRepository(new DocumentProperties().getContentChunkSize());
+        document = store();
+    }
+
+    @TearDown(Iteration)
+    public void deleteSaved() {
+        benchmarkDatabase.inTransaction(() -> documentRepository.deleteAllIfExist(savedIds));
+        savedIds.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        benchmarkDatabase.inTransaction(() -> documentRepository.deleteIfExists(document.getId()));
+        benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public Document save() {
+        Document saved = store();
+        savedIds.add(saved.getId());
+        return saved;
+    }
+
+    @Benchmark
+    public long readContent() {
+        return benchmarkDatabase.inTransaction(() -> documentRepository.readContent(document, nullOutputStream()));
+    }
+
+    private Document store() {
+        Document template = new Document(randomUUID().toString(), "content.bin", APPLICATION_OCTET_STREAM_VALUE, contentLength);
+        return benchmarkDatabase.inTransaction(
+            () -> documentRepository.save(template, new GeneratedContentInputStream(contentLength, seed++)));
+    }
+}
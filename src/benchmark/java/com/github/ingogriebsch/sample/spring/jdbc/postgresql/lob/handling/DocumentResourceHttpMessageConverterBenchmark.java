@@ -0,0 +1,87 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.nanoTime;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static com.google.common.io.ByteStreams.nullOutputStream;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+import java.io.OutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+/**
+ * Measures how fast the content of a document is written to the response depending on the chunk size (i.e. the size of the
+ * buffers the content is copied through). The content is stored once per trial with the same chunk size.
+ */
+@BenchmarkMode(AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DocumentResourceHttpMessageConverterBenchmark {
+
+    @Param({ "8192", "65536", "1048576" })
+    private int contentChunkSize;
+
+    @Param({ "0", "1024", "65536", "1048576", "16777216", "268435456" })
+    private long contentLength;
+
+    private BenchmarkDatabase benchmarkDatabase;
+
+    private DocumentRepository documentRepository;
+
+    private Document document;
+
+    private final HttpOutputMessage outputMessage = new HttpOutputMessage() {
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return nullOutputStream();
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        benchmarkDatabase = new BenchmarkDatabase();
+        documentRepository = benchmarkDatabase.documentRepository(contentChunkSize);
+
+        Document template = new Document(randomUUID().toString(), "content.bin", APPLICATION_OCTET_STREAM_VALUE, contentLength);
+        document = benchmarkDatabase.inTransaction(
+            () -> documentRepository.save(template, new GeneratedContentInputStream(contentLength, nanoTime())));
+    }
+
+    @TearDown
+    public void tearDown() {
+        benchmarkDatabase.inTransaction(() -> documentRepository.deleteIfExists(document.getId()));
+        benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public void writeContent() {
+        benchmarkDatabase.inTransaction(() -> {
+            DocumentResourceHttpMessageConverter.writeContent(document, outputMessage.getBody(), documentRepository);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.nullOutputStream;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures the serialization of pages of documents (like they are returned by the list endpoint) to JSON.
+ */
+@BenchmarkMode(AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class DocumentSerializationBenchmark {
+
+    @Param({ "1", "100", "1000", "10000" })
+    private int documentCount;
+
+    // Configured like the object mapper Spring Boot provides to the application.
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() {
+        documents = newArrayList();
+        for (int i = 0; i < documentCount; i++) {
+            documents.add(new Document(randomUUID().toString(), "document-" + i + ".txt", TEXT_PLAIN_VALUE, 4711L * i, null,
+                "7cbd4e03525d67914883ebc9b8fdade2405e38401812f60ee30ed36954014e42", currentTimeMillis()));
+        }
+    }
+
+    @Benchmark
+    public void writeValue() throws IOException {
+        objectMapper.writeValue(nullOutputStream(), documents);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import static com.google.common.primitives.Longs.toByteArray;
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+
+import java.io.InputStream;
+
+/**
+ * Provides random (and therefore incompressible) content of the given length without holding it in memory. The content starts
+ * with the given seed, so content generated with different seeds has different digests and is not shared by the repository.
+ */
+class GeneratedContentInputStream extends InputStream {
+
+    private static final byte[] BLOCK = nextBytes(64 * 1024);
+
+    private final byte[] seed;
+
+    private final long length;
+
+    private long position;
+
+    GeneratedContentInputStream(long length, long seed) {
+        this.seed = toByteArray(seed);
+        this.length = length;
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        byte b = position < seed.length ? seed[(int) position] : BLOCK[(int) (position % BLOCK.length)];
+        position++;
+        return b & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+
+        int count = (int) min(len, length - position);
+        for (int copied = 0; copied < count;) {
+            int blockOffset = (int) ((position + copied) % BLOCK.length);
+            int chunk = min(count - copied, BLOCK.length - blockOffset);
+            System.arraycopy(BLOCK, blockOffset, b, off + copied, chunk);
+            copied += chunk;
+        }
+        for (long i = position; i < seed.length && i < position + count; i++) {
+            b[off + (int) (i - position)] = seed[(int) i];
+        }
+        position += count;
+        return count;
+    }
+}
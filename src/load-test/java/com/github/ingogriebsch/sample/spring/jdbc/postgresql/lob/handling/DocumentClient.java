@@ -0,0 +1,131 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+
+import static com.google.common.io.ByteStreams.exhaust;
+import static com.google.common.primitives.Longs.toByteArray;
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collection;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Calls the REST API of the application through plain (keep-alive) HTTP connections and streams all content, so the load
+ * generator itself holds no content in memory.
+ */
+@RequiredArgsConstructor
+class DocumentClient {
+
+    // Uploaded content is random (i.e. incompressible), only its first bytes are made unique so that it is never shared.
+    private static final byte[] BLOCK = nextBytes(64 * 1024);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @NonNull
+    private final String baseUrl;
+
+    /**
+     * Uploads a document with content of the given length and returns its id.
+     */
+    String upload(long contentLength, long seed) throws IOException {
+        HttpURLConnection connection = open("/api/documents", "POST");
+        connection.setRequestProperty(CONTENT_TYPE, APPLICATION_OCTET_STREAM_VALUE);
+        connection.setRequestProperty(CONTENT_DISPOSITION, ContentDispositionUtils.attachment("load-" + seed + ".bin"));
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(contentLength);
+        try (OutputStream body = connection.getOutputStream()) {
+            byte[] prefix = toByteArray(seed);
+            body.write(prefix, 0, (int) min(prefix.length, contentLength));
+            for (long written = prefix.length; written < contentLength; written += BLOCK.length) {
+                body.write(BLOCK, 0, (int) min(BLOCK.length, contentLength - written));
+            }
+        }
+
+        checkStatus(connection);
+        try (InputStream body = connection.getInputStream()) {
+            return OBJECT_MAPPER.readTree(body).get("id").asText();
+        }
+    }
+
+    /**
+     * Downloads the content of the given document and returns its length, or -1 if the document does not exist (anymore).
+     */
+    long download(@NonNull String id) throws IOException {
+        HttpURLConnection connection = open("/api/documents/" + id + "/content", "GET");
+        if (connection.getResponseCode() == HTTP_NOT_FOUND) {
+            discard(connection.getErrorStream());
+            return -1;
+        }
+        return read(connection);
+    }
+
+    /**
+     * Fetches the first page of documents and returns the length of the response.
+     */
+    long list(int size) throws IOException {
+        return read(open("/api/documents?size=" + size, "GET"));
+    }
+
+    void delete(@NonNull String id) throws IOException {
+        HttpURLConnection connection = open("/api/documents/" + id, "DELETE");
+        if (connection.getResponseCode() == HTTP_NOT_FOUND) {
+            discard(connection.getErrorStream());
+            return;
+        }
+        read(connection);
+    }
+
+    void deleteAll(@NonNull Collection<String> ids) throws IOException {
+        HttpURLConnection connection = open("/api/documents", "DELETE");
+        connection.setRequestProperty(CONTENT_TYPE, APPLICATION_JSON_VALUE);
+        connection.setDoOutput(true);
+        try (OutputStream body = connection.getOutputStream()) {
+            OBJECT_MAPPER.writeValue(body, ids);
+        }
+        read(connection);
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    private static long read(HttpURLConnection connection) throws IOException {
+        checkStatus(connection);
+        try (InputStream body = connection.getInputStream()) {
+            return exhaust(body);
+        }
+    }
+
+    // The response of a failed request is consumed as well, otherwise the connection could not be reused.
+    private static void checkStatus(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            discard(connection.getErrorStream());
+            throw new IOException("Request " + connection.getRequestMethod() + " " + connection.getURL() + " failed with status "
+                + status + "!");
+        }
+    }
+
+    private static void discard(InputStream body) throws IOException {
+        if (body != null) {
+            try (InputStream closeable = body) {
+                exhaust(closeable);
+            }
+        }
+    }
+}
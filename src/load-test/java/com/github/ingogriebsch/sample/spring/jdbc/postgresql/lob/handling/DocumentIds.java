@@ -0,0 +1,46 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Holds the ids of the documents the load generator uploaded and which are not deleted yet.
+ */
+class DocumentIds {
+
+    private final List<String> ids = newArrayList();
+
+    synchronized void add(String id) {
+        ids.add(id);
+    }
+
+    /**
+     * Returns a random id, or null if there is none.
+     */
+    synchronized String random() {
+        return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * Removes and returns a random id, or null if there is none.
+     */
+    synchronized String removeRandom() {
+        if (ids.isEmpty()) {
+            return null;
+        }
+        // Swapping the last id into the removed position keeps the removal cheap.
+        int index = ThreadLocalRandom.current().nextInt(ids.size());
+        String id = ids.get(index);
+        ids.set(index, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    synchronized List<String> removeAll() {
+        List<String> removed = newArrayList(ids);
+        ids.clear();
+        return removed;
+    }
+}
@@ -0,0 +1,197 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.getInteger;
+import static java.lang.Long.getLong;
+import static java.lang.System.getProperty;
+import static java.lang.System.nanoTime;
+import static java.lang.System.setProperty;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.partition;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Drives the REST API of a running application with concurrent clients and reports throughput, latencies and transferred
+ * bytes per operation. Everything is configured through system properties:
+ * <ul>
+ * <li>load.base-url: the URL the application is available at (default http://localhost:8080)</li>
+ * <li>load.clients: the number of concurrent clients (default 16)</li>
+ * <li>load.warmup-seconds: how long the load is generated before anything is recorded (default 10)</li>
+ * <li>load.duration-seconds: how long the load is recorded (default 60)</li>
+ * <li>load.mix: the weights of the operations (default upload=20,download=60,list=15,delete=5)</li>
+ * <li>load.file-sizes: the weights of the content lengths of uploaded documents (default 1024=40,65536=40,1048576=15,
+ * 16777216=5)</li>
+ * <li>load.list-size: the page size of the list operation (default 100)</li>
+ * <li>load.initial-documents: how many documents are uploaded before the load starts (default 100)</li>
+ * <li>load.cleanup: whether the uploaded documents are deleted afterwards (default true)</li>
+ * </ul>
+ */
+@Slf4j
+public class LoadGenerator {
+
+    enum Operation {
+        UPLOAD, DOWNLOAD, LIST, DELETE
+    }
+
+    private final int clients = getInteger("load.clients", 16);
+
+    private final long warmupSeconds = getLong("load.warmup-seconds", 10);
+
+    private final long durationSeconds = getLong("load.duration-seconds", 60);
+
+    private final WeightedDistribution<Operation> mix = WeightedDistribution.parse(
+        getProperty("load.mix", "upload=20,download=60,list=15,delete=5"), value -> Operation.valueOf(value.toUpperCase()));
+
+    private final WeightedDistribution<Long> fileSizes =
+        WeightedDistribution.parse(getProperty("load.file-sizes", "1024=40,65536=40,1048576=15,16777216=5"), Long::valueOf);
+
+    private final int listSize = getInteger("load.list-size", 100);
+
+    private final int initialDocuments = getInteger("load.initial-documents", 100);
+
+    private final boolean cleanup = parseBoolean(getProperty("load.cleanup", "true"));
+
+    private final DocumentClient documentClient = new DocumentClient(getProperty("load.base-url", "http://localhost:8080"));
+
+    private final DocumentIds documentIds = new DocumentIds();
+
+    private final Map<Operation, OperationStatistics> statistics = new EnumMap<>(Operation.class);
+
+    private final AtomicLong seed = new AtomicLong(nanoTime());
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+    }
+
+    private void run() throws Exception {
+        // Connections are only kept alive (and reused) if there is room for one connection per client.
+        setProperty("http.maxConnections", String.valueOf(clients));
+        for (Operation operation : Operation.values()) {
+            statistics.put(operation, new OperationStatistics());
+        }
+
+        ExecutorService executor = newFixedThreadPool(clients);
+        try {
+            log.info("Uploading {} initial documents...", initialDocuments);
+            List<Future<?>> futures = newArrayList();
+            for (int i = 0; i < initialDocuments; i++) {
+                futures.add(executor.submit(() -> {
+                    documentIds.add(documentClient.upload(fileSizes.next(), seed.getAndIncrement()));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            log.info("Generating load with {} clients for {}s (after a warmup of {}s)...", clients, durationSeconds,
+                warmupSeconds);
+            long recordingStart = nanoTime() + SECONDS.toNanos(warmupSeconds);
+            long recordingEnd = recordingStart + SECONDS.toNanos(durationSeconds);
+            futures.clear();
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> generateLoad(recordingStart, recordingEnd)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            statistics.values().forEach(OperationStatistics::complete);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report();
+        if (cleanup) {
+            List<String> ids = documentIds.removeAll();
+            log.info("Deleting {} uploaded documents...", ids.size());
+            for (List<String> batch : partition(ids, 1000)) {
+                documentClient.deleteAll(batch);
+            }
+        }
+    }
+
+    private void generateLoad(long recordingStart, long recordingEnd) {
+        long start;
+        while ((start = nanoTime()) < recordingEnd) {
+            Operation operation = mix.next();
+            OperationStatistics operationStatistics = statistics.get(operation);
+            try {
+                long bytes = execute(operation);
+                // Operations which started during the warmup are not recorded, neither are the ones which were skipped.
+                if (start >= recordingStart && bytes >= 0) {
+                    operationStatistics.record(nanoTime() - start, bytes);
+                }
+            } catch (IOException e) {
+                log.debug("Operation {} failed!", operation, e);
+                if (start >= recordingStart) {
+                    operationStatistics.recordError();
+                }
+            }
+        }
+    }
+
+    // Returns the number of transferred content bytes, or -1 if the operation could not be executed as intended.
+    private long execute(Operation operation) throws IOException {
+        switch (operation) {
+            case UPLOAD:
+                long contentLength = fileSizes.next();
+                documentIds.add(documentClient.upload(contentLength, seed.getAndIncrement()));
+                return contentLength;
+            case DOWNLOAD:
+                String id = documentIds.random();
+                return id != null ? documentClient.download(id) : -1;
+            case LIST:
+                return documentClient.list(listSize);
+            case DELETE:
+                String removedId = documentIds.removeRandom();
+                if (removedId == null) {
+                    return -1;
+                }
+                documentClient.delete(removedId);
+                return 0;
+            default:
+                throw new IllegalArgumentException("Operation " + operation + " is not supported!");
+        }
+    }
+
+    private void report() {
+        System.out.println();
+        System.out.println(String.format("%-10s %10s %8s %10s %10s %10s %10s %10s %10s", "operation", "count", "errors", "ops/s",
+            "p50 ms", "p99 ms", "p99.9 ms", "max ms", "MB/s"));
+
+        Histogram total = new Histogram(3);
+        long totalBytes = 0;
+        long totalErrors = 0;
+        for (Map.Entry<Operation, OperationStatistics> entry : statistics.entrySet()) {
+            OperationStatistics operationStatistics = entry.getValue();
+            total.add(operationStatistics.getHistogram());
+            totalBytes += operationStatistics.getBytes();
+            totalErrors += operationStatistics.getErrors();
+            report(entry.getKey().name().toLowerCase(), operationStatistics.getHistogram(), operationStatistics.getBytes(),
+                operationStatistics.getErrors());
+        }
+        report("total", total, totalBytes, totalErrors);
+        System.out.println();
+    }
+
+    private void report(String name, Histogram histogram, long bytes, long errors) {
+        System.out.println(String.format("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f", name,
+            histogram.getTotalCount(), errors, (double) histogram.getTotalCount() / durationSeconds,
+            histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0,
+            bytes / (1024.0 * 1024.0) / durationSeconds));
+    }
+}
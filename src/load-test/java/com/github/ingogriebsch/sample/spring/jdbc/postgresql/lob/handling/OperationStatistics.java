@@ -0,0 +1,53 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Collects the latencies (in microseconds), the transferred bytes and the errors of one operation of the load generator.
+ */
+class OperationStatistics {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = MICROSECONDS.convert(1, HOURS);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    @Getter
+    private Histogram histogram;
+
+    void record(long latencyNanos, long transferredBytes) {
+        recorder.recordValue(min(MICROSECONDS.convert(latencyNanos, NANOSECONDS), HIGHEST_TRACKABLE_LATENCY));
+        bytes.add(transferredBytes);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Takes the latencies recorded so far, further recordings are not taken into account anymore.
+     */
+    void complete() {
+        histogram = recorder.getIntervalHistogram();
+    }
+
+    long getBytes() {
+        return bytes.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Picks values randomly according to their weights, which are given like 'upload=20,download=60' (i.e. as comma separated
+ * list of value/weight pairs).
+ */
+class WeightedDistribution<T> {
+
+    private final List<T> values = newArrayList();
+
+    private final List<Integer> cumulatedWeights = newArrayList();
+
+    private int totalWeight;
+
+    static <T> WeightedDistribution<T> parse(String weights, Function<String, T> valueParser) {
+        WeightedDistribution<T> distribution = new WeightedDistribution<>();
+        Splitter.on(',').trimResults().omitEmptyStrings().withKeyValueSeparator('=').split(weights)
+            .forEach((value, weight) -> distribution.add(valueParser.apply(value), Integer.parseInt(weight)));
+        checkArgument(distribution.totalWeight > 0, "The distribution '%s' does not contain any weight!", weights);
+        return distribution;
+    }
+
+    T next() {
+        int random = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < values.size(); i++) {
+            if (random < cumulatedWeights.get(i)) {
+                return values.get(i);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void add(T value, int weight) {
+        checkArgument(weight >= 0, "The weight of '%s' must not be negative!", value);
+        totalWeight += weight;
+        values.add(value);
+        cumulatedWeights.add(totalWeight);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import javax.servlet.ServletRequest;
+
+import lombok.NonNull;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Limits the number of requests which are processed concurrently per budget. Each budget has permits of its own, so that the
+ * requests of one budget (e.g. large transfers, which occupy a connection for their whole duration) cannot starve the requests
+ * of another budget (e.g. metadata lookups) of connections. A request which does not get a permit within the wait time is
+ * rejected. The permits are held until the request is completed, including an asynchronous transfer (see
+ * {@link AdmissionControlFilter}).
+ */
+public class AdmissionControl {
+
+    public enum Budget {
+        METADATA, SMALL_TRANSFER, LARGE_TRANSFER
+    }
+
+    private static final String ATTRIBUTE_PERMITS = AdmissionControl.class.getName() + ".PERMITS";
+
+    private final Map<Budget, Semaphore> semaphores = new EnumMap<>(Budget.class);
+
+    private final long waitMillis;
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Creates an instance which admits the given number of concurrent requests per budget. Budgets without a limit (or with a
+     * negative one) admit all requests.
+     */
+    public AdmissionControl(@NonNull Map<Budget, Integer> limits, long waitMillis, long retryAfterSeconds) {
+        limits.forEach((budget, limit) -> {
+            if (limit >= 0) {
+                semaphores.put(budget, new Semaphore(limit, true));
+            }
+        });
+        this.waitMillis = waitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Admits the current request to the given budget. Waits at most the wait time for a permit, which is released once the
+     * request is completed.
+     *
+     * @throws AdmissionRejectedException if no permit became available in time.
+     */
+    public void admit(@NonNull Budget budget) {
+        Semaphore semaphore = semaphores.get(budget);
+        if (semaphore == null) {
+            return;
+        }
+
+        // Resolved up front, so that a permit is never taken without being recorded for its release.
+        RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(waitMillis, MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new AdmissionRejectedException(budget, retryAfterSeconds);
+        }
+
+        try {
+            @SuppressWarnings("unchecked")
+            List<Semaphore> permits = (List<Semaphore>) requestAttributes.getAttribute(ATTRIBUTE_PERMITS, SCOPE_REQUEST);
+            if (permits == null) {
+                permits = new ArrayList<>();
+                requestAttributes.setAttribute(ATTRIBUTE_PERMITS, permits, SCOPE_REQUEST);
+            }
+            permits.add(semaphore);
+        } catch (RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the permits the given request was admitted with. Releasing them more than once has no effect.
+     */
+    public void release(@NonNull ServletRequest request) {
+        @SuppressWarnings("unchecked")
+        List<Semaphore> permits = (List<Semaphore>) request.getAttribute(ATTRIBUTE_PERMITS);
+        if (permits != null) {
+            request.removeAttribute(ATTRIBUTE_PERMITS);
+            permits.forEach(Semaphore::release);
+        }
+    }
+
+    /**
+     * Returns the number of requests the given budget is able to admit right now or -1 if the budget has no limit.
+     */
+    public int getAvailablePermits(@NonNull Budget budget) {
+        Semaphore semaphore = semaphores.get(budget);
+        return semaphore != null ? semaphore.availablePermits() : -1;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Releases the permits a request was admitted with (see {@link AdmissionControl}) once the request is completed. The permits of
+ * a request which is processed asynchronously (e.g. a download which is transferred on a download thread) are released once
+ * the asynchronous processing is completed.
+ */
+@RequiredArgsConstructor
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    @NonNull
+    private final AdmissionControl admissionControl;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitReleasingListener(request));
+            } else {
+                admissionControl.release(request);
+            }
+        }
+    }
+
+    // A failed asynchronous request is usually completed afterwards, but releasing the permits is idempotent anyway.
+    @RequiredArgsConstructor
+    private class PermitReleasingListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admissionControl.release(request);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            admissionControl.release(request);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
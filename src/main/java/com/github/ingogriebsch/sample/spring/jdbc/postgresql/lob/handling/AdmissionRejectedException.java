@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Thrown if a request is not admitted to its budget because the budget is exhausted (see {@link AdmissionControl}). The client
+ * is asked to retry the request after the given number of seconds.
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(@NonNull AdmissionControl.Budget budget, long retryAfterSeconds) {
+        super("The budget " + budget + " is exhausted!");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
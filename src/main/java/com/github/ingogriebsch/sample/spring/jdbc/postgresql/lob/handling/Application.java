@@ -12,7 +12,9 @@ package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 import static org.springframework.boot.SpringApplication.run;
 
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
 public class Application {
 
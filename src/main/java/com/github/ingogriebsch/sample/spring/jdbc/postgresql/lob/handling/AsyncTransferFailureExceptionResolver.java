@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static javax.servlet.DispatcherType.ASYNC;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Resolves I/O failures of asynchronous transfers (e.g. because the client disconnected or the transfer timed out) which occur
+ * after the response is committed. There is nothing left to respond in this case, so the failure is only logged. Otherwise the
+ * server would try to render an error page into the committed response and log the failure (including the stack trace) as
+ * error, which it does not for transfers on the request thread.
+ */
+@Slf4j
+public class AsyncTransferFailureExceptionResolver implements HandlerExceptionResolver {
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response, Object handler,
+        Exception ex) {
+        if (!(ex instanceof IOException) || request.getDispatcherType() != ASYNC || !response.isCommitted()) {
+            return null;
+        }
+
+        log.warn("Could not transfer the response to '{}': {}", request.getRequestURI(), ex.getMessage());
+        return new ModelAndView();
+    }
+}
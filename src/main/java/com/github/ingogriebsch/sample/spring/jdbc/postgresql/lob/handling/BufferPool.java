@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lombok.Getter;
+
+/**
+ * A bounded pool of equally sized byte buffers which are used to move content between a large object and a stream. Reusing the
+ * buffers avoids allocating a new chunk for every up- and download. If the pool is exhausted a new buffer is handed out, and
+ * buffers which are released into a full pool are simply dropped.
+ */
+public class BufferPool {
+
+    @Getter
+    private final int bufferSize;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    public BufferPool(int bufferSize, int capacity) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be greater than zero!");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than zero!");
+        }
+
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    int available() {
+        return buffers.size();
+    }
+}
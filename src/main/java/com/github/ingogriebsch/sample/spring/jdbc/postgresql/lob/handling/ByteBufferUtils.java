@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+@NoArgsConstructor(access = PRIVATE)
+public final class ByteBufferUtils {
+
+    /**
+     * Copies the remaining bytes of the given (possibly direct) byte buffer into the given target chunk by chunk, using the given
+     * buffer as the only intermediate storage. The target is neither flushed nor closed.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    public static long copy(@NonNull ByteBuffer source, @NonNull OutputStream target, @NonNull byte[] buffer) throws IOException {
+        long count = 0;
+        while (source.hasRemaining()) {
+            int length = min(buffer.length, source.remaining());
+            source.get(buffer, 0, length);
+            target.write(buffer, 0, length);
+            count += length;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Content which is held by the {@link DocumentContentCache} in blocks of its off-heap memory. The blocks are handed back to the
+ * cache once the content is evicted and released by all its readers, so everyone who obtained the content from the cache needs
+ * to release it once it is read (and must not read it afterwards).
+ */
+public class CachedContent {
+
+    private final DocumentContentCache cache;
+
+    private final int[] blocks;
+
+    @Getter
+    private final int length;
+
+    // The reference held by the cache (while the content is cached) and the ones held by the readers.
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    CachedContent(@NonNull DocumentContentCache cache, @NonNull int[] blocks, int length) {
+        this.cache = cache;
+        this.blocks = blocks;
+        this.length = length;
+    }
+
+    /**
+     * Copies the given range of the content into the given target block by block, using the given buffer as the only
+     * intermediate storage. The target is neither flushed nor closed.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    public long copy(@NonNull OutputStream target, long offset, long length, @NonNull byte[] buffer) throws IOException {
+        int blockBytes = cache.getBlockBytes();
+        int position = (int) min(offset, this.length);
+        int end = (int) min(offset + length, this.length);
+        while (position < end) {
+            ByteBuffer block = cache.block(blocks[position / blockBytes]);
+            block.position(position % blockBytes);
+            block.limit(min(blockBytes, block.position() + end - position));
+            position += ByteBufferUtils.copy(block, target, buffer);
+        }
+        return end - min(offset, this.length);
+    }
+
+    /**
+     * Returns an output stream which writes the content from its beginning. Writing beyond the length of the content fails with
+     * a {@link BufferOverflowException}.
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+
+            private int position;
+
+            @Override
+            public void write(int b) {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (len > length - position) {
+                    throw new BufferOverflowException();
+                }
+
+                int blockBytes = cache.getBlockBytes();
+                while (len > 0) {
+                    ByteBuffer block = cache.block(blocks[position / blockBytes]);
+                    block.position(position % blockBytes);
+                    int written = min(len, block.remaining());
+                    block.put(b, off, written);
+                    position += written;
+                    off += written;
+                    len -= written;
+                }
+            }
+        };
+    }
+
+    /**
+     * Releases the reference on the content. The blocks of the content are handed back to the cache once the last reference is
+     * released.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            cache.free(blocks);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("The content is already released!");
+        }
+    }
+
+    // Only called by the cache while it holds a reference itself, so the content cannot be freed concurrently.
+    void retain() {
+        references.incrementAndGet();
+    }
+}
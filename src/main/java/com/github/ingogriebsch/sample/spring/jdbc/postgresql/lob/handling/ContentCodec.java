@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A codec which encodes (i.e. compresses) content while it is stored and decodes it while it is read. Both directions work on
+ * streams so that the content is never held in memory as a whole.
+ */
+public interface ContentCodec {
+
+    /**
+     * Returns the name of the encoding, which is also used as value of the Content-Encoding header if the encoded content is
+     * served as is.
+     */
+    String getEncoding();
+
+    /**
+     * Returns a stream which provides the encoded content of the given source.
+     */
+    InputStream encode(InputStream source) throws IOException;
+
+    /**
+     * Returns a stream which provides the decoded content of the given source.
+     */
+    InputStream decode(InputStream source) throws IOException;
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import static org.springframework.http.MediaType.parseMediaType;
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import lombok.NonNull;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Decides based on the content type of a document whether its content is compressed while it is stored, and with which codec.
+ * Content types which are compressed already (like images or archives) are not listed and therefore stored as is.
+ */
+public class ContentCompressionPolicy {
+
+    private final Map<String, ContentCodec> codecs;
+
+    private final ContentCodec codec;
+
+    private final List<MediaType> compressedContentTypes;
+
+    /**
+     * @param codecs the codecs which are able to decode stored content.
+     * @param encoding the encoding of the codec which is used to compress content from now on. None disables the compression.
+     * @param compressedContentTypes the content types (which may contain wildcards) whose content is compressed.
+     */
+    public ContentCompressionPolicy(@NonNull Collection<ContentCodec> codecs, String encoding,
+        @NonNull Collection<String> compressedContentTypes) {
+        this.codecs = codecs.stream().collect(toMap(ContentCodec::getEncoding, identity()));
+        this.codec = hasText(encoding) ? getCodecForEncoding(encoding) : null;
+        this.compressedContentTypes = compressedContentTypes.stream().map(MediaType::parseMediaType).collect(toList());
+    }
+
+    /**
+     * Returns the codec the content of the given type is compressed with, or null if it is stored as is.
+     */
+    public ContentCodec getCodec(String contentType) {
+        if (codec == null || !hasText(contentType)) {
+            return null;
+        }
+
+        MediaType mediaType;
+        try {
+            mediaType = parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        return compressedContentTypes.stream().anyMatch(type -> type.includes(mediaType)) ? codec : null;
+    }
+
+    public ContentCodec getCodecForEncoding(@NonNull String encoding) {
+        ContentCodec codec = codecs.get(encoding);
+        if (codec == null) {
+            throw new IllegalArgumentException("There is no codec for encoding '" + encoding + "'!");
+        }
+        return codec;
+    }
+}
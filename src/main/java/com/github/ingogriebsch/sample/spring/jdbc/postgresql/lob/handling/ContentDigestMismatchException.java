@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Thrown if the digest of stored content differs from the one the client declared for it. The content is not stored (the
+ * transaction is rolled back).
+ */
+@Getter
+public class ContentDigestMismatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String declaredDigest;
+
+    private final String actualDigest;
+
+    public ContentDigestMismatchException(@NonNull String declaredDigest, @NonNull String actualDigest) {
+        super("The digest of the content is '" + actualDigest + "' instead of '" + declaredDigest + "'!");
+        this.declaredDigest = declaredDigest;
+        this.actualDigest = actualDigest;
+    }
+}
@@ -1,13 +1,21 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.util.regex.Pattern.compile;
+
 import static lombok.AccessLevel.PRIVATE;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 
 @NoArgsConstructor(access = PRIVATE)
 public final class ContentDispositionUtils {
 
+    // The filename is either given as quoted string (which may contain escaped characters) or as token.
+    private static final Pattern FILENAME = compile("(?i)(?:^|;)\\s*filename\\s*=\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|([^;\\s]+))");
+
     public static String attachment(@NonNull String filename) {
         return contentDisposition("attachement", filename);
     }
@@ -16,6 +24,17 @@ public final class ContentDispositionUtils {
         return contentDisposition("inline", filename);
     }
 
+    /**
+     * Returns the value of the filename parameter of the given Content-Disposition header value, or null if there is none.
+     */
+    public static String filename(@NonNull String contentDisposition) {
+        Matcher matcher = FILENAME.matcher(contentDisposition);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1).replaceAll("\\\\(.)", "$1") : matcher.group(2);
+    }
+
     private static String contentDisposition(String name, String filename) {
         return new StringBuilder("form-data; name=\"").append(name).append('\"').append("; filename=\"").append(filename)
             .append('\"').toString();
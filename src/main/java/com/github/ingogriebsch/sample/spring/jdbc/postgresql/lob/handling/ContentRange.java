@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.http.HttpRange;
+
+/**
+ * A satisfiable byte range of a document's content, i.e. a range which is resolved against the length of the content.
+ */
+@Value
+public class ContentRange {
+
+    long start;
+
+    long end;
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    public String toContentRangeHeader(long contentLength) {
+        return format("bytes %d-%d/%d", start, end, contentLength);
+    }
+
+    public static String toUnsatisfiedContentRangeHeader(long contentLength) {
+        return format("bytes */%d", contentLength);
+    }
+
+    /**
+     * Resolves the given (requested) ranges against the given content length.
+     * 
+     * @throws IllegalArgumentException if one of the ranges is not satisfiable.
+     */
+    public static List<ContentRange> resolve(@NonNull List<HttpRange> ranges, long contentLength) {
+        List<ContentRange> result = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(contentLength);
+            long end = range.getRangeEnd(contentLength);
+            if (start >= contentLength || start > end) {
+                throw new IllegalArgumentException(format("Range '%s' is not satisfiable!", range));
+            }
+            result.add(new ContentRange(start, end));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+/**
+ * A strategy which stores the content of documents in a specific way. All operations need to be called inside a transaction.
+ */
+public interface ContentStorage {
+
+    /**
+     * Returns whether the content of the given document is stored through this strategy.
+     */
+    boolean isResponsibleFor(Document document);
+
+    /**
+     * Stores the content which consists of the given head (i.e. the bytes which are already read from the source) followed by
+     * the remainder of the source.
+     */
+    StoredContent write(byte[] head, int headLength, InputStream remainder, byte[] buffer) throws IOException, SQLException;
+
+    /**
+     * Reads the given range of the content of the given document into the given target.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    long read(Document document, OutputStream target, long offset, long length, byte[] buffer) throws IOException, SQLException;
+
+    /**
+     * Opens a stream on the content of the given document which reads the content in chunks of the given size.
+     */
+    InputStream open(Document document, int chunkSize) throws SQLException;
+}
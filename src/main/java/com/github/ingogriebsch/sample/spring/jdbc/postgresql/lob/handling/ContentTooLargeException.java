@@ -0,0 +1,25 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+
+/**
+ * Thrown if uploaded content exceeds one of the limits set for it (e.g. its maximum size or the maximum number of entries of an
+ * archive). Is thrown while the content is read, so the content which was stored so far is discarded (the transaction is rolled
+ * back).
+ */
+public class ContentTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ContentTooLargeException(String message) {
+        super(message);
+    }
+}
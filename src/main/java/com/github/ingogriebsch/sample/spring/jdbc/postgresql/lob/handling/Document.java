@@ -11,8 +11,6 @@ package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
 import static lombok.AccessLevel.PACKAGE;
 
-import java.sql.Blob;
-
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -21,10 +19,10 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
 
-@EqualsAndHashCode(exclude = { "content" })
+@EqualsAndHashCode(exclude = { "contentOid" })
 @Getter
 @NoArgsConstructor(access = PACKAGE)
-@ToString(exclude = { "content" })
+@ToString(exclude = { "contentOid" })
 public class Document {
 
     public Document(@NonNull String id, @NonNull String filename, @NonNull String contentType, @NonNull Long contentLength) {
@@ -35,9 +33,17 @@ public class Document {
     }
 
     public Document(@NonNull String id, @NonNull String filename, @NonNull String contentType, @NonNull Long contentLength,
-        @NonNull Blob content) {
+        @NonNull Long contentOid) {
+        this(id, filename, contentType, contentLength);
+        this.contentOid = contentOid;
+    }
+
+    public Document(@NonNull String id, @NonNull String filename, @NonNull String contentType, @NonNull Long contentLength,
+        Long contentOid, @NonNull String contentDigest, @NonNull Long lastModified) {
         this(id, filename, contentType, contentLength);
-        this.content = content;
+        this.contentOid = contentOid;
+        this.contentDigest = contentDigest;
+        this.lastModified = lastModified;
     }
 
     private String id;
@@ -48,9 +54,47 @@ public class Document {
 
     private Long contentLength;
 
-    // FIXME We need to decide if this should be of type Blob or if we should/can use InputStream.
+    // The oid of the large object holding the content. The large object itself is only opened while the content is transferred.
+    // Not set if the content is stored inline.
+    @JsonIgnore
+    @Setter(PACKAGE)
+    private Long contentOid;
+
+    // The (hex encoded) SHA-256 digest of the content which is computed while the content is stored. The digest of a template
+    // is the one declared by the client (if any), which is verified while the content is stored.
+    @JsonIgnore
+    @Setter(PACKAGE)
+    private String contentDigest;
+
+    // The encoding (e.g. 'gzip') the content is stored with. Not set if the content is stored as is.
     @JsonIgnore
     @Setter(PACKAGE)
-    private Blob content;
+    private String contentEncoding;
 
+    // The length of the content as stored (i.e. after it was encoded). Not set if the content is stored as is.
+    @JsonIgnore
+    @Setter(PACKAGE)
+    private Long encodedContentLength;
+
+    // The point in time (in milliseconds since the epoch) the document was stored.
+    @JsonIgnore
+    @Setter(PACKAGE)
+    private Long lastModified;
+
+    /**
+     * Returns the strong entity tag of the document (and its content) which is derived from the content digest.
+     */
+    @JsonIgnore
+    public String getETag() {
+        return contentDigest != null ? "\"" + contentDigest + "\"" : null;
+    }
+
+    /**
+     * Returns the strong entity tag of the encoded representation of the content (which differs from the one of the content as
+     * such), or null if the content is not stored encoded.
+     */
+    @JsonIgnore
+    public String getEncodedETag() {
+        return contentDigest != null && contentEncoding != null ? "\"" + contentDigest + "-" + contentEncoding + "\"" : null;
+    }
 }
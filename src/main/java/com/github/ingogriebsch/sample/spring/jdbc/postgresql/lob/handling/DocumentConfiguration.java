@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Collections.singletonList;
+
+import lombok.NonNull;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableConfigurationProperties(DocumentProperties.class)
+public class DocumentConfiguration {
+
+    @Bean
+    public BufferPool contentBufferPool(@NonNull DocumentProperties documentProperties) {
+        return new BufferPool(documentProperties.getContentChunkSize(), documentProperties.getContentBufferPoolSize());
+    }
+
+    @Bean
+    public ContentCompressionPolicy contentCompressionPolicy(@NonNull DocumentProperties documentProperties) {
+        return new ContentCompressionPolicy(singletonList(new GzipContentCodec()),
+            documentProperties.getContentCompressionEncoding(), documentProperties.getCompressedContentTypes());
+    }
+
+    @Bean
+    public DocumentMetadataCache documentMetadataCache(@NonNull DocumentProperties documentProperties) {
+        return new DocumentMetadataCache(documentProperties.getMetadataCacheMaximumSize(),
+            documentProperties.getMetadataCacheExpireAfterWriteSeconds());
+    }
+
+    @Bean
+    public DocumentContentCache documentContentCache(@NonNull DocumentProperties documentProperties) {
+        return new DocumentContentCache(documentProperties.getContentCacheMaximumBytes(),
+            documentProperties.getContentCacheMaximumEntryBytes(), documentProperties.getContentCacheBlockBytes());
+    }
+
+    // Replaces the single threaded scheduler Spring falls back to, on which the reapers would delay each other.
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@NonNull DocumentProperties documentProperties) {
+        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setThreadNamePrefix("scheduler-");
+        taskScheduler.setPoolSize(documentProperties.getSchedulerThreads());
+        return taskScheduler;
+    }
+
+}
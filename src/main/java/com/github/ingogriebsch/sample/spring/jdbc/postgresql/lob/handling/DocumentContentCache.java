@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.Arrays.asList;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import lombok.NonNull;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * A cache holding the content of small documents off-heap so that frequently downloaded documents need not be read from their
+ * large object again and again. The memory of the cache is allocated up front (as direct buffers of the size of the byte budget)
+ * and split into blocks of equal size, which are handed to the cached content and reused once the content is evicted and not
+ * read anymore. So a miss neither allocates memory nor leaves memory behind which is only freed by the garbage collector. The
+ * cache evicts the least recently used entries first. Content which exceeds the per entry ceiling is never cached. The
+ * statistics of the cache are published through the metrics endpoint.
+ */
+public class DocumentContentCache implements PublicMetrics {
+
+    private static final String METRIC_PREFIX = "cache.documents.content.";
+    // A direct buffer holds at most 2 GB, so larger budgets are split into several slabs.
+    private static final int MAXIMUM_SLAB_BYTES = 1024 * 1024 * 1024;
+
+    private final int blockBytes;
+
+    private final int blocksPerSlab;
+
+    private final ByteBuffer[] slabs;
+
+    private final long maximumEntryBytes;
+
+    // The blocks which are not held by any content (used as a stack).
+    private final int[] freeBlocks;
+
+    private int freeBlockCount;
+
+    // Ordered from the least to the most recently used entry.
+    private final LinkedHashMap<String, CachedContent> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    public DocumentContentCache(long maximumBytes, int maximumEntryBytes, int blockBytes) {
+        if (blockBytes < 1) {
+            throw new IllegalArgumentException("Block size must be greater than zero!");
+        }
+
+        int blocks = (int) min(max(maximumBytes, 0) / blockBytes, Integer.MAX_VALUE);
+        this.blockBytes = blockBytes;
+        this.blocksPerSlab = max(MAXIMUM_SLAB_BYTES / blockBytes, 1);
+        this.slabs = new ByteBuffer[(int) (((long) blocks + blocksPerSlab - 1) / blocksPerSlab)];
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = allocateDirect(min(blocksPerSlab, blocks - i * blocksPerSlab) * blockBytes);
+        }
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.freeBlockCount = blocks;
+        // An entry needs to fit into the cache as a whole.
+        this.maximumEntryBytes = blocks > 0 ? min(maximumEntryBytes, (long) blocks * blockBytes) : -1;
+    }
+
+    public boolean isCacheable(@NonNull Document document) {
+        return document.getContentLength() <= maximumEntryBytes;
+    }
+
+    /**
+     * Returns the cached content of the document with the given id, or null if it is not cached. The content needs to be
+     * released once it is read.
+     */
+    public synchronized CachedContent get(@NonNull String id) {
+        CachedContent content = entries.get(id);
+        if (content == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        content.retain();
+        return content;
+    }
+
+    /**
+     * Allocates the memory for content of the given length, evicting the least recently used entries if necessary. Returns null
+     * if the content exceeds the per entry ceiling or if the memory is held by evicted content which is still read. The content
+     * needs to be released once it is written (and read).
+     */
+    public synchronized CachedContent allocate(int length) {
+        if (length > maximumEntryBytes) {
+            return null;
+        }
+
+        int blockCount = (int) (((long) length + blockBytes - 1) / blockBytes);
+        Iterator<CachedContent> leastRecentlyUsed = entries.values().iterator();
+        while (freeBlockCount < blockCount && leastRecentlyUsed.hasNext()) {
+            CachedContent evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            evictionCount++;
+            bytes -= evicted.getLength();
+            evicted.release();
+        }
+        if (freeBlockCount < blockCount) {
+            return null;
+        }
+
+        int[] blocks = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i] = freeBlocks[--freeBlockCount];
+        }
+        return new CachedContent(this, blocks, length);
+    }
+
+    /**
+     * Puts the given content (which is allocated through this cache and written completely) into the cache. The content stays
+     * cached until it is evicted or invalidated, independent of the reference held by the caller.
+     */
+    public synchronized void put(@NonNull String id, @NonNull CachedContent content) {
+        content.retain();
+        bytes += content.getLength();
+        CachedContent replaced = entries.put(id, content);
+        if (replaced != null) {
+            bytes -= replaced.getLength();
+            replaced.release();
+        }
+    }
+
+    public synchronized void invalidate(@NonNull String id) {
+        CachedContent invalidated = entries.remove(id);
+        if (invalidated != null) {
+            bytes -= invalidated.getLength();
+            invalidated.release();
+        }
+    }
+
+    @Override
+    public synchronized Collection<Metric<?>> metrics() {
+        return asList(new Metric<>(METRIC_PREFIX + "size", (long) entries.size()), new Metric<>(METRIC_PREFIX + "bytes", bytes),
+            new Metric<>(METRIC_PREFIX + "hit", hitCount), new Metric<>(METRIC_PREFIX + "miss", missCount),
+            new Metric<>(METRIC_PREFIX + "eviction", evictionCount));
+    }
+
+    int getBlockBytes() {
+        return blockBytes;
+    }
+
+    // Returns a view of the given block, the views of a block are independent of each other.
+    ByteBuffer block(int index) {
+        ByteBuffer slab = slabs[index / blocksPerSlab].duplicate();
+        int offset = (index % blocksPerSlab) * blockBytes;
+        slab.limit(offset + blockBytes);
+        slab.position(offset);
+        return slab.slice();
+    }
+
+    // Called once the content which held the given blocks is evicted and released by all its readers.
+    synchronized void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeBlockCount++] = block;
+        }
+    }
+}
@@ -1,28 +1,75 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
 import static java.util.UUID.randomUUID;
 
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.LARGE_TRANSFER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.METADATA;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.SMALL_TRANSFER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.ContentDispositionUtils.filename;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentSourceUtils.fromMultipartFiles;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentSourceUtils.fromZipArchive;
+import static com.google.common.collect.Lists.partition;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.HttpHeaders.IF_RANGE;
+import static org.springframework.http.HttpHeaders.LINK;
+import static org.springframework.http.HttpHeaders.RANGE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.LENGTH_REQUIRED;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.UNSUPPORTED_MEDIA_TYPE;
 import static org.springframework.http.MediaType.ALL_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
+import static org.springframework.http.ResponseEntity.badRequest;
+import static org.springframework.http.ResponseEntity.created;
+import static org.springframework.http.ResponseEntity.noContent;
 import static org.springframework.http.ResponseEntity.notFound;
 import static org.springframework.http.ResponseEntity.ok;
 import static org.springframework.http.ResponseEntity.status;
+import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequest;
+import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentRequestUri;
 
-import java.io.BufferedInputStream;
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.zip.ZipInputStream;
+
+import javax.servlet.MultipartConfigElement;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
@@ -31,46 +78,459 @@ public class DocumentController {
     static final String PATH_FIND_ALL = "/api/documents";
     static final String PATH_FIND_ONE = "/api/documents/{id}";
     static final String PATH_UPLOAD = "/api/documents";
+    static final String PATH_UPLOAD_ALL = "/api/documents/batch";
     static final String PATH_DOWNLOAD = "/api/documents/{id}/content";
     static final String PATH_DELETE = "/api/documents/{id}";
+    static final String PATH_DELETE_ALL = "/api/documents";
+    static final String PATH_UPLOAD_SESSIONS = "/api/documents/uploads";
+    static final String PATH_UPLOAD_SESSION = "/api/documents/uploads/{id}";
+    static final String PATH_UPLOAD_CHUNK = "/api/documents/uploads/{id}/chunks/{index}";
+    static final String PATH_UPLOAD_COMMIT = "/api/documents/uploads/{id}/commit";
     static final String REQUEST_PART_SOURCE = "source";
+    static final String REQUEST_PART_SOURCES = "sources";
+    static final String APPLICATION_ZIP_VALUE = "application/zip";
+    static final String REQUEST_PARAM_AFTER = "after";
+    static final String REQUEST_PARAM_SIZE = "size";
+    static final String REQUEST_PARAM_STREAM = "stream";
+    static final String REQUEST_PARAM_MODIFIED_BEFORE = "modifiedBefore";
+    static final String REQUEST_PARAM_FILENAME = "filename";
+    static final String REQUEST_PARAM_CONTENT_TYPE = "contentType";
+    static final String REQUEST_PARAM_CONTENT_LENGTH = "contentLength";
+    static final String REQUEST_PARAM_CONTENT_DIGEST = "contentDigest";
 
     @NonNull
     private final DocumentRepository documentRepository;
 
+    @NonNull
+    private final DocumentProperties documentProperties;
+
+    @NonNull
+    private final DocumentResourceHttpMessageConverter documentResourceHttpMessageConverter;
+
+    @NonNull
+    private final AdmissionControl admissionControl;
+
+    @NonNull
+    private final UploadSessionRepository uploadSessionRepository;
+
+    @NonNull
+    private final MultipartConfigElement multipartConfigElement;
+
+    /**
+     * Returns a page of documents ordered by their ids. The page following the returned one is referenced through a 'next'
+     * link in the Link header (as long as the returned page is full).
+     */
     @GetMapping(path = PATH_FIND_ALL, produces = APPLICATION_JSON_UTF8_VALUE)
-    public List<Document> findAll() {
-        return documentRepository.findAll();
+    public ResponseEntity<List<Document>> findAll(@RequestParam(name = REQUEST_PARAM_AFTER, required = false) String after,
+        @RequestParam(name = REQUEST_PARAM_SIZE, required = false) Integer size) {
+        admissionControl.admit(METADATA);
+        int pageSize = size != null ? max(1, min(size, documentProperties.getMaxPageSize())) : documentProperties.getPageSize();
+        List<Document> documents = documentRepository.findAll(after, pageSize);
+        if (documents.size() < pageSize) {
+            return ok(documents);
+        }
+
+        String next = fromCurrentRequest().replaceQueryParam(REQUEST_PARAM_AFTER, documents.get(documents.size() - 1).getId())
+            .replaceQueryParam(REQUEST_PARAM_SIZE, pageSize).build().encode().toUriString();
+        return ok().header(LINK, format("<%s>; rel=\"next\"", next)).body(documents);
+    }
+
+    /**
+     * Returns all documents ordered by their ids. The documents are written to the client while they are read from the
+     * database, so the memory consumption does not depend on the number of documents.
+     */
+    @GetMapping(path = PATH_FIND_ALL, params = REQUEST_PARAM_STREAM + "=true", produces = APPLICATION_JSON_UTF8_VALUE)
+    public DocumentStreamResource streamAll() {
+        // The stream occupies its connection until the client received all documents.
+        admissionControl.admit(LARGE_TRANSFER);
+        return new DocumentStreamResource(documentProperties.getStreamFetchSize());
     }
 
     @GetMapping(path = PATH_FIND_ONE, produces = APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<Document> findOne(@PathVariable String id) {
+        admissionControl.admit(METADATA);
         Document document = documentRepository.findOne(id);
-        return document != null ? ok(document) : notFound().build();
+        if (document == null) {
+            return notFound().build();
+        }
+        // Conditional requests are answered with 304 by Spring MVC based on these validators.
+        return ok().eTag(document.getETag()).lastModified(document.getLastModified()).body(document);
     }
 
-    @PostMapping(path = PATH_UPLOAD, produces = APPLICATION_JSON_UTF8_VALUE)
+    @PostMapping(path = PATH_UPLOAD, consumes = MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<Document> upload(@RequestPart(name = REQUEST_PART_SOURCE) MultipartFile source) throws Exception {
+        admitTransfer(source.getSize());
         Document template =
             new Document(randomUUID().toString(), source.getOriginalFilename(), source.getContentType(), source.getSize());
 
         Document document;
-        try (InputStream content = new BufferedInputStream(source.getInputStream())) {
+        try (InputStream content = source.getInputStream()) {
             document = documentRepository.save(template, content);
         }
         return status(CREATED).body(document);
     }
 
+    /**
+     * Stores the request body as content of a new document. Other than the multipart upload, the body is piped directly into the
+     * database without being spooled to disk first. The body needs to be sent as 'application/octet-stream' (other bodies are
+     * rejected with 415), so the content type of the document is taken from the optional 'contentType' parameter instead. The
+     * filename is taken from the Content-Disposition header (e.g. 'attachment; filename="test.txt"').
+     * <p>
+     * The client may declare the (hex encoded) SHA-256 digest of the content (as returned in the ETag) through the optional
+     * 'contentDigest' parameter. Content which is already stored is then not written again, and content which does not match
+     * the declared digest is rejected with 400.
+     * <p>
+     * Content which exceeds the maximum file size (see 'spring.http.multipart.max-file-size') is rejected with 413, either
+     * upfront based on the Content-Length header or once the limit is crossed while the content is stored.
+     */
+    @PostMapping(path = PATH_UPLOAD, consumes = APPLICATION_OCTET_STREAM_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Document> uploadStream(@RequestHeader(name = CONTENT_TYPE, required = false) String bodyType,
+        @RequestHeader(name = CONTENT_DISPOSITION, required = false) String disposition,
+        @RequestParam(name = REQUEST_PARAM_CONTENT_TYPE, required = false) String contentType,
+        @RequestParam(name = REQUEST_PARAM_CONTENT_DIGEST, required = false) String contentDigest,
+        @RequestHeader(name = CONTENT_LENGTH, required = false) Long contentLength, InputStream content) throws Exception {
+        // Spring MVC treats a body without Content-Type as 'application/octet-stream', but it is not accepted as such here.
+        if (bodyType == null) {
+            return status(UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        String filename = disposition != null ? filename(disposition) : null;
+        if (filename == null) {
+            return badRequest().build();
+        }
+
+        long maxFileSize = multipartConfigElement.getMaxFileSize();
+        if (maxFileSize >= 0 && contentLength != null && contentLength > maxFileSize) {
+            return status(PAYLOAD_TOO_LARGE).build();
+        }
+
+        admitTransfer(contentLength);
+        Document template = new Document(randomUUID().toString(), filename,
+            contentType != null ? contentType : APPLICATION_OCTET_STREAM_VALUE, contentLength != null ? contentLength : 0L);
+        template.setContentDigest(contentDigest);
+        return status(CREATED).body(documentRepository.save(template,
+            maxFileSize >= 0 ? new SizeLimitedInputStream(content, maxFileSize) : content));
+    }
+
+    /**
+     * Stores all files given as parts named 'sources' in one transaction.
+     * 
+     * @return the stored documents in the order of the parts.
+     */
+    @PostMapping(path = PATH_UPLOAD_ALL, consumes = MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<Document>> uploadAll(@RequestPart(name = REQUEST_PART_SOURCES) List<MultipartFile> sources)
+        throws Exception {
+        admitTransfer(sources.stream().mapToLong(MultipartFile::getSize).sum());
+        List<Document> documents =
+            documentRepository.saveAll(fromMultipartFiles(sources), documentProperties.getUploadBatchSize());
+        return status(CREATED).body(documents);
+    }
+
+    /**
+     * Stores all files contained in the zip archive given as request body in one transaction. The archive is read while the files
+     * are stored, so it is neither held in memory nor spooled to disk. An archive which exceeds one of the limits set for it (see
+     * {@link DocumentSourceUtils#fromZipArchive(ZipInputStream, long, long, int)}) is rejected with 413.
+     * 
+     * @return the stored documents in the order of the archive entries.
+     */
+    @PostMapping(path = PATH_UPLOAD_ALL, consumes = APPLICATION_ZIP_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<Document>> uploadArchive(InputStream archive) throws Exception {
+        // The length of the contained files is not known until the archive is read.
+        admissionControl.admit(LARGE_TRANSFER);
+        List<Document> documents;
+        try (ZipInputStream source = new ZipInputStream(archive)) {
+            documents = documentRepository.saveAll(fromZipArchive(source, multipartConfigElement.getMaxFileSize(),
+                documentProperties.getUploadArchiveMaximumSize(), documentProperties.getUploadArchiveMaximumEntries()),
+                documentProperties.getUploadBatchSize());
+        }
+        return status(CREATED).body(documents);
+    }
+
+    /**
+     * Starts a resumable upload of the content of a new document with the given filename. The content is then transferred in
+     * numbered chunks (see {@link #uploadChunk(String, int, Long, InputStream)}) and stored as document once the upload is
+     * committed (see {@link #commitUpload(String)}). An upload which is not committed expires after a while. An upload whose
+     * announced length exceeds the maximum size of an upload (see 'document.upload-session-max-size') is rejected with 413.
+     */
+    @PostMapping(path = PATH_UPLOAD_SESSIONS, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<UploadSession> createUploadSession(@RequestParam(name = REQUEST_PARAM_FILENAME) String filename,
+        @RequestParam(name = REQUEST_PARAM_CONTENT_TYPE, required = false) String contentType,
+        @RequestParam(name = REQUEST_PARAM_CONTENT_LENGTH, required = false) Long contentLength) {
+        long maxSize = documentProperties.getUploadSessionMaxSize();
+        if (maxSize >= 0 && contentLength != null && contentLength > maxSize) {
+            return status(PAYLOAD_TOO_LARGE).build();
+        }
+
+        admissionControl.admit(METADATA);
+        UploadSession session = uploadSessionRepository.create(filename,
+            contentType != null ? contentType : APPLICATION_OCTET_STREAM_VALUE, contentLength);
+        return created(fromCurrentRequestUri().path("/{id}").buildAndExpand(session.getId()).toUri()).body(session);
+    }
+
+    /**
+     * Returns the given upload together with the chunks received so far, so that an interrupted upload can be resumed by
+     * transferring the missing chunks only.
+     */
+    @GetMapping(path = PATH_UPLOAD_SESSION, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<UploadSession> findUploadSession(@PathVariable String id) {
+        admissionControl.admit(METADATA);
+        UploadSession session = uploadSessionRepository.findOne(id);
+        return session != null ? ok(session) : notFound().build();
+    }
+
+    /**
+     * Stores the request body as the chunk with the given index (starting at zero) of the given upload. Chunks may be
+     * transferred in any order and in parallel, a chunk which is transferred again replaces the one received before. The length
+     * of the chunk needs to be given through the Content-Length header. A chunk which would let the upload exceed its maximum
+     * size (see 'document.upload-session-max-size') is rejected with 413.
+     */
+    @PutMapping(path = PATH_UPLOAD_CHUNK)
+    public ResponseEntity<?> uploadChunk(@PathVariable String id, @PathVariable int index,
+        @RequestHeader(name = CONTENT_LENGTH, required = false) Long contentLength, InputStream content) {
+        if (contentLength == null) {
+            return status(LENGTH_REQUIRED).build();
+        }
+        if (contentLength > documentProperties.getUploadChunkMaximumSize()) {
+            return status(PAYLOAD_TOO_LARGE).build();
+        }
+        if (index < 0) {
+            return badRequest().build();
+        }
+
+        admitTransfer(contentLength);
+        return uploadSessionRepository.saveChunk(id, index, content, contentLength) ? noContent().build() : notFound().build();
+    }
+
+    /**
+     * Stores the content of the given upload (i.e. its chunks in the order of their indexes) as content of a new document and
+     * ends the upload. Answers with 409 (Conflict) if a chunk is missing or if the chunks do not add up to the announced length
+     * and with 413 if they exceed the maximum size of an upload (chunks which were stored in parallel may have done so).
+     */
+    @PostMapping(path = PATH_UPLOAD_COMMIT, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Document> commitUpload(@PathVariable String id) throws Exception {
+        // The whole content is read and stored again.
+        admissionControl.admit(LARGE_TRANSFER);
+        Document document;
+        try {
+            document = uploadSessionRepository.commit(id);
+        } catch (IllegalStateException e) {
+            return status(CONFLICT).build();
+        }
+        return document != null ? status(CREATED).body(document) : notFound().build();
+    }
+
+    @DeleteMapping(path = PATH_UPLOAD_SESSION)
+    public ResponseEntity<?> deleteUploadSession(@PathVariable String id) {
+        admissionControl.admit(METADATA);
+        return uploadSessionRepository.delete(id) ? ok().build() : notFound().build();
+    }
+
     @GetMapping(path = PATH_DOWNLOAD, produces = ALL_VALUE)
-    public ResponseEntity<DocumentResource> download(@PathVariable String id) throws Exception {
-        if (!documentRepository.exists(id)) {
+    public ResponseEntity<?> download(@PathVariable String id, @RequestHeader HttpHeaders requestHeaders,
+        WebRequest webRequest) throws Exception {
+        Document document = documentRepository.findOne(id);
+        if (document == null) {
             return notFound().build();
         }
-        return ResponseEntity.ok(new DocumentResource(id));
+
+        // Clients which accept the encoding the content is stored with get it as is, unless they ask for ranges (which refer to
+        // the decoded content).
+        List<HttpRange> requestedRanges = requestHeaders.containsKey(RANGE) && isRangeApplicable(requestHeaders, document)
+            ? requestedRanges(requestHeaders) : emptyList();
+        boolean rangeRequested = !requestedRanges.isEmpty();
+        boolean encoded = !rangeRequested && document.getContentEncoding() != null
+            && isEncodingAccepted(requestHeaders.getFirst(ACCEPT_ENCODING), document.getContentEncoding());
+        String eTag = encoded ? document.getEncodedETag() : document.getETag();
+
+        // Answered solely based on the metadata, the content (i.e. the large object) is not touched at all.
+        if (webRequest.checkNotModified(eTag, document.getLastModified())) {
+            return null;
+        }
+
+        if (!rangeRequested) {
+            return body(varyByEncoding(ok(), document).eTag(eTag).lastModified(document.getLastModified()),
+                new DocumentResource(document, emptyList(), encoded));
+        }
+
+        List<ContentRange> ranges;
+        try {
+            ranges = ContentRange.resolve(requestedRanges, document.getContentLength());
+        } catch (IllegalArgumentException e) {
+            return status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(CONTENT_RANGE, ContentRange.toUnsatisfiedContentRangeHeader(document.getContentLength())).build();
+        }
+        return body(varyByEncoding(ranges.isEmpty() ? ok() : status(PARTIAL_CONTENT), document).eTag(eTag)
+            .lastModified(document.getLastModified()), new DocumentResource(document, ranges));
     }
 
     @DeleteMapping(path = PATH_DELETE)
     public ResponseEntity<?> delete(@PathVariable String id) {
+        admissionControl.admit(METADATA);
         return documentRepository.deleteIfExists(id) ? ok().build() : notFound().build();
     }
+
+    /**
+     * Deletes either the documents with the ids given through the body or the documents which were stored before the given
+     * instant (e.g. '2019-06-08T13:20:00Z'). The documents are deleted in batches, each in its own transaction, so that a large
+     * deletion neither holds its locks nor pins the large objects until the very end. Because such a deletion occupies its
+     * connection for a long time as well, it is admitted to the budget of the large transfers and not to the one of the metadata
+     * requests.
+     */
+    @DeleteMapping(path = PATH_DELETE_ALL, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<DocumentDeletion> deleteAll(@RequestBody(required = false) List<String> ids,
+        @RequestParam(name = REQUEST_PARAM_MODIFIED_BEFORE, required = false) Instant modifiedBefore) {
+        if ((ids == null) == (modifiedBefore == null)) {
+            return badRequest().build();
+        }
+
+        admissionControl.admit(LARGE_TRANSFER);
+        int batchSize = documentProperties.getBulkDeleteBatchSize();
+        long deleted = 0;
+        if (ids != null) {
+            for (List<String> batch : partition(ids, batchSize)) {
+                deleted += documentRepository.deleteAllIfExist(batch).size();
+            }
+        } else {
+            int count;
+            do {
+                count = documentRepository.deleteAllModifiedBefore(modifiedBefore.toEpochMilli(), batchSize).size();
+                deleted += count;
+            } while (count == batchSize);
+        }
+        return ok(new DocumentDeletion(deleted));
+    }
+
+    /**
+     * Answers requests which were not admitted to their budget (see {@link AdmissionControl}) with 503 (Service Unavailable)
+     * and asks the client to retry them later.
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<?> rejected(AdmissionRejectedException e) {
+        return status(SERVICE_UNAVAILABLE).header(RETRY_AFTER, "" + e.getRetryAfterSeconds()).build();
+    }
+
+    /**
+     * Answers uploads whose content does not match the digest declared by the client with 400 (Bad Request).
+     */
+    @ExceptionHandler(ContentDigestMismatchException.class)
+    public ResponseEntity<?> digestMismatch(ContentDigestMismatchException e) {
+        return badRequest().build();
+    }
+
+    /**
+     * Answers uploads whose content exceeds the maximum size allowed for it with 413 (Payload Too Large). The content stored so
+     * far is discarded because the exception rolls back the transaction it was stored in.
+     */
+    @ExceptionHandler(ContentTooLargeException.class)
+    public ResponseEntity<?> tooLarge(ContentTooLargeException e) {
+        return status(PAYLOAD_TOO_LARGE).build();
+    }
+
+    // Large content is transferred on one of the download threads, so that slow clients do not occupy the request threads. The
+    // content is read within a transaction which is opened on the download thread because transactions are bound to threads.
+    // Non-blocking downloads are not admitted to a budget because they do not occupy a connection.
+    private ResponseEntity<?> body(BodyBuilder builder, DocumentResource documentResource) {
+        long contentLength = documentResource.getDocument().getContentLength();
+        long asyncDownloadThreshold = documentProperties.getAsyncDownloadThreshold();
+        if (asyncDownloadThreshold < 0 || contentLength < asyncDownloadThreshold) {
+            admitTransfer(contentLength);
+            return builder.body(documentResource);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (documentProperties.isNonBlockingDownloads()) {
+            NonBlockingContent content = documentResourceHttpMessageConverter.prepareNonBlocking(documentResource, headers);
+            if (content != null) {
+                return builder.headers(headers).body(content);
+            }
+        }
+
+        admitTransfer(contentLength);
+        StreamingResponseBody content = documentResourceHttpMessageConverter.prepare(documentResource, headers);
+        long downloadTimeoutMillis = documentProperties.getDownloadTimeoutMillis();
+        StreamingResponseBody body = target -> documentResourceHttpMessageConverter.transfer(content,
+            new TimeLimitedOutputStream(target, downloadTimeoutMillis));
+        return builder.headers(headers).body(body);
+    }
+
+    // Transfers of unknown length are treated like large ones.
+    private void admitTransfer(Long contentLength) {
+        admissionControl.admit(contentLength == null || contentLength >= documentProperties.getLargeTransferThreshold()
+            ? LARGE_TRANSFER : SMALL_TRANSFER);
+    }
+
+    // The response to a download of encoded content depends on whether the client accepts the encoding.
+    private static BodyBuilder varyByEncoding(BodyBuilder builder, Document document) {
+        return document.getContentEncoding() != null ? builder.varyBy(ACCEPT_ENCODING) : builder;
+    }
+
+    // An encoding is accepted if it is listed (or covered by '*') with a quality value above zero (see RFC 7231, section 5.3.4).
+    // An explicitly listed encoding overrides '*', regardless of the order of the elements.
+    static boolean isEncodingAccepted(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcardAccepted = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String coding = parameters[0].trim();
+            if (coding.equalsIgnoreCase(encoding)) {
+                return isAccepted(parameters);
+            }
+            if (coding.equals("*")) {
+                wildcardAccepted = isAccepted(parameters);
+            }
+        }
+        return wildcardAccepted;
+    }
+
+    // The parameters follow the coding itself, a coding without a quality value is accepted.
+    private static boolean isAccepted(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") && isZero(parameter.substring(2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A malformed quality value is treated like zero.
+    private static boolean isZero(String qualityValue) {
+        try {
+            return Double.parseDouble(qualityValue) == 0;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // A Range header which cannot be parsed (e.g. because of an unknown unit) is ignored (see RFC 7233, section 3.1), only ranges
+    // which cannot be satisfied are answered with 416.
+    private static List<HttpRange> requestedRanges(HttpHeaders requestHeaders) {
+        try {
+            return requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return emptyList();
+        }
+    }
+
+    // A range request is only applicable if the validator given through If-Range (if any) matches the document. A weak entity
+    // tag never matches (see RFC 7233, section 3.2).
+    static boolean isRangeApplicable(HttpHeaders requestHeaders, Document document) {
+        String ifRange = requestHeaders.getFirst(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(document.getETag());
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+
+        try {
+            return requestHeaders.getFirstDate(IF_RANGE) == document.getLastModified() / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 }
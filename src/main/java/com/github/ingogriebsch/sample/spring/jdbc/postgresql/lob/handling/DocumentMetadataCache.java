@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.NonNull;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * A size and time bounded cache of the metadata of documents. Only the metadata is cached, which is immutable once the document
+ * is stored, therefore entries need only be invalidated if a document is deleted. The statistics of the cache are published
+ * through the metrics endpoint.
+ */
+public class DocumentMetadataCache implements PublicMetrics {
+
+    private static final String METRIC_PREFIX = "cache.documents.metadata.";
+
+    private final Cache<String, Document> cache;
+
+    public DocumentMetadataCache(long maximumSize, long expireAfterWriteSeconds) {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWriteSeconds, SECONDS)
+            .recordStats().build();
+    }
+
+    public Document get(@NonNull String id) {
+        return cache.getIfPresent(id);
+    }
+
+    public void put(@NonNull Document document) {
+        cache.put(document.getId(), document);
+    }
+
+    public void invalidate(@NonNull String id) {
+        cache.invalidate(id);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.stats();
+        return asList(new Metric<>(METRIC_PREFIX + "size", cache.size()), new Metric<>(METRIC_PREFIX + "hit", stats.hitCount()),
+            new Metric<>(METRIC_PREFIX + "miss", stats.missCount()),
+            new Metric<>(METRIC_PREFIX + "eviction", stats.evictionCount()));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.NonNull;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Collects timers (invocation count, error count, total and maximum time) and summaries (count, total and maximum amount, e.g.
+ * of transferred bytes) and publishes them through the metrics endpoint. Times are published in milliseconds. A timer named
+ * 'a.b' is published as 'a.b.count', 'a.b.errors', 'a.b.time.total' and 'a.b.time.max', a summary as 'a.b.count', 'a.b.total'
+ * and 'a.b.max'.
+ */
+public class DocumentMetrics implements PublicMetrics {
+
+    private final ConcurrentMap<String, Statistic> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Statistic> summaries = new ConcurrentHashMap<>();
+
+    public void recordTime(@NonNull String name, long nanos, boolean failed) {
+        Statistic statistic = timers.computeIfAbsent(name, key -> new Statistic());
+        statistic.record(nanos);
+        if (failed) {
+            statistic.errors.increment();
+        }
+    }
+
+    public void recordAmount(@NonNull String name, long amount) {
+        summaries.computeIfAbsent(name, key -> new Statistic()).record(amount);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        timers.forEach((name, statistic) -> {
+            metrics.add(new Metric<>(name + ".count", statistic.count.sum()));
+            metrics.add(new Metric<>(name + ".errors", statistic.errors.sum()));
+            metrics.add(new Metric<>(name + ".time.total", toMillis(statistic.total.sum())));
+            metrics.add(new Metric<>(name + ".time.max", toMillis(statistic.max.get())));
+        });
+        summaries.forEach((name, statistic) -> {
+            metrics.add(new Metric<>(name + ".count", statistic.count.sum()));
+            metrics.add(new Metric<>(name + ".total", statistic.total.sum()));
+            metrics.add(new Metric<>(name + ".max", statistic.max.get()));
+        });
+        return metrics;
+    }
+
+    // Fractions are kept because many operations (like reading inline content) take less than a millisecond.
+    private static double toMillis(long nanos) {
+        return nanos / (double) MILLISECONDS.toNanos(1);
+    }
+
+    private static class Statistic {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long value) {
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+    }
+}
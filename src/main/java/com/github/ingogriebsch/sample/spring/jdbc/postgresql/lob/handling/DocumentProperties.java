@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "document")
+@Data
+public class DocumentProperties {
+
+    /**
+     * The size (in bytes) of the chunks the content is transferred with between the large object and the client.
+     */
+    private int contentChunkSize = 64 * 1024;
+
+    /**
+     * The maximum number of chunk buffers which are kept for reuse.
+     */
+    private int contentBufferPoolSize = 64;
+
+    /**
+     * The maximum size (in bytes) of the content of a document which is stored inline in the document row instead of a large
+     * object. Needs to be smaller than the content chunk size. Zero stores all content as large objects.
+     */
+    private int inlineContentThreshold = 4 * 1024;
+
+    /**
+     * The encoding (i.e. the codec) the content is compressed with while it is stored. None disables the compression.
+     */
+    private String contentCompressionEncoding = "gzip";
+
+    /**
+     * The content types (which may contain wildcards) whose content is compressed while it is stored. Types which are
+     * compressed already (like images or archives) should not be listed.
+     */
+    private List<String> compressedContentTypes =
+        newArrayList("text/*", "image/svg+xml", "application/json", "application/xml", "application/javascript");
+
+    /**
+     * The number of documents which are returned per page if the client does not ask for a specific page size.
+     */
+    private int pageSize = 100;
+
+    /**
+     * The maximum number of documents which are returned per page.
+     */
+    private int maxPageSize = 1000;
+
+    /**
+     * The number of rows which are fetched at once from the database while all documents are streamed.
+     */
+    private int streamFetchSize = 500;
+
+    /**
+     * The number of documents which are inserted through one JDBC batch by a batch upload.
+     */
+    private int uploadBatchSize = 100;
+
+    /**
+     * The maximum number of bytes the (uncompressed) files of a zip archive uploaded through a batch upload may add up to. Each
+     * file is limited to the maximum file size (see 'spring.http.multipart.max-file-size') as well. A negative value disables
+     * the limit.
+     */
+    private long uploadArchiveMaximumSize = 1024 * 1024 * 1024;
+
+    /**
+     * The maximum number of entries (including directories) a zip archive uploaded through a batch upload may contain. A
+     * negative value disables the limit.
+     */
+    private int uploadArchiveMaximumEntries = 1000;
+
+    /**
+     * The maximum number of documents which are deleted in one transaction by a bulk deletion.
+     */
+    private int bulkDeleteBatchSize = 1000;
+
+    /**
+     * The maximum size (in bytes) of a chunk of a resumable upload. A chunk is held in memory while the upload is committed.
+     */
+    private long uploadChunkMaximumSize = 16 * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes the chunks of a resumable upload may add up to. Is checked against the chunks staged so far
+     * whenever a chunk is received and once more when the upload is committed. A negative value disables the limit.
+     */
+    private long uploadSessionMaxSize = 1024 * 1024 * 1024;
+
+    /**
+     * The number of seconds after which a resumable upload which was not committed is deleted together with its chunks.
+     */
+    private long uploadSessionExpireAfterSeconds = 24 * 60 * 60;
+
+    /**
+     * The number of milliseconds between two runs of the reaper which deletes expired resumable uploads.
+     */
+    private long uploadSessionReaperIntervalMillis = 10 * 60 * 1000;
+
+    /**
+     * The minimum content length (in bytes) of a document whose content is transferred asynchronously, i.e. on one of the
+     * download threads instead of the request thread. A negative value transfers all content on the request thread.
+     */
+    private long asyncDownloadThreshold = 1024 * 1024;
+
+    /**
+     * The number of threads which transfer content asynchronously. A thread is occupied until the client received the whole
+     * content, i.e. slow clients slow down the transfer but do not occupy the request threads.
+     */
+    private int downloadThreads = 32;
+
+    /**
+     * The maximum number of asynchronous downloads which wait for a download thread. The content of further downloads is
+     * transferred on their request thread.
+     */
+    private int downloadQueueCapacity = 256;
+
+    /**
+     * The number of milliseconds after which the transfer of an asynchronous download is aborted. Clients which stop receiving
+     * the content are already disconnected after the connection timeout of the server (see 'server.connection-timeout').
+     */
+    private long downloadTimeoutMillis = 30 * 60 * 1000;
+
+    /**
+     * Whether the content of asynchronous downloads is transferred with non-blocking I/O instead of on the download threads.
+     * The content is then read chunk by chunk (without a transaction) whenever the client is able to receive more of it, so
+     * neither a thread nor a connection is occupied by slow clients. Only applies to content stored as large object which is
+     * transferred as stored (i.e. not decoded) and to requests for at most one range.
+     */
+    private boolean nonBlockingDownloads = false;
+
+    /**
+     * Whether requests and asynchronous downloads are processed on virtual threads (one per request or download) instead of the
+     * pooled request and download threads. Only takes effect on a runtime which supports virtual threads (Java 21 or later).
+     */
+    private boolean virtualThreadsEnabled = false;
+
+    /**
+     * The maximum number of milliseconds a virtual thread waits for a pooled connection (replaces the maximum wait of the
+     * pool). The number of threads no longer bounds the number of concurrent requests, so the requests which need a connection
+     * queue up in the pool instead.
+     */
+    private long virtualThreadsConnectionWaitMillis = 60 * 1000;
+
+    /**
+     * The maximum number of metadata requests (i.e. lookups and deletions of single documents) which are processed concurrently.
+     * The concurrency limits of all budgets together should stay below the maximum number of pooled connections, so that each
+     * budget gets its connections even if the others are exhausted. A negative value disables the limit.
+     */
+    private int metadataConcurrencyLimit = 16;
+
+    /**
+     * The maximum number of uploads and downloads of small content (see 'document.large-transfer-threshold') which are
+     * processed concurrently. A negative value disables the limit.
+     */
+    private int smallTransferConcurrencyLimit = 32;
+
+    /**
+     * The maximum number of uploads and downloads of large content (and of streams of all documents and bulk deletions) which
+     * are processed concurrently. A large transfer occupies its connection until the client sent or received the whole content.
+     * Non-blocking downloads do not occupy a connection and are therefore not limited. A negative value disables the limit.
+     */
+    private int largeTransferConcurrencyLimit = 32;
+
+    /**
+     * The minimum content length (in bytes) of an upload or download which counts as large transfer. Uploads of unknown length
+     * count as large transfers.
+     */
+    private long largeTransferThreshold = 1024 * 1024;
+
+    /**
+     * The maximum number of milliseconds a request waits to be admitted to its budget before it is rejected.
+     */
+    private long admissionWaitMillis = 1000;
+
+    /**
+     * The number of seconds after which a client should retry a rejected request (see the Retry-After header).
+     */
+    private long admissionRetryAfterSeconds = 1;
+
+    /**
+     * The maximum number of documents whose metadata is cached. Zero disables the cache.
+     */
+    private long metadataCacheMaximumSize = 10000;
+
+    /**
+     * The number of seconds the metadata of a document is cached.
+     */
+    private long metadataCacheExpireAfterWriteSeconds = 600;
+
+    /**
+     * The maximum number of bytes the (off-heap) content cache holds overall, which are allocated up front. Zero disables the
+     * cache.
+     */
+    private long contentCacheMaximumBytes = 32 * 1024 * 1024;
+
+    /**
+     * The maximum size (in bytes) of the content of a document which is cached.
+     */
+    private int contentCacheMaximumEntryBytes = 64 * 1024;
+
+    /**
+     * The size (in bytes) of the blocks the memory of the content cache is split into. Cached content occupies whole blocks.
+     */
+    private int contentCacheBlockBytes = 4 * 1024;
+
+    /**
+     * Whether large objects which are not referenced by any document are unlinked in the background. Assumes that the
+     * large objects owned by the database user are only used by this application.
+     */
+    private boolean orphanedContentReaperEnabled = true;
+
+    /**
+     * The number of milliseconds between two runs of the orphaned content reaper.
+     */
+    private long orphanedContentReaperIntervalMillis = 60 * 60 * 1000;
+
+    /**
+     * The maximum number of orphaned large objects which are unlinked in one transaction.
+     */
+    private int orphanedContentReaperBatchSize = 100;
+
+    /**
+     * The number of milliseconds the orphaned content reaper pauses between two batches.
+     */
+    private long orphanedContentReaperPauseMillis = 1000;
+
+    /**
+     * The number of threads which run the scheduled tasks (i.e. the reapers). Each reaper should get a thread of its own, so
+     * that a long run of one reaper (e.g. pausing between its batches) does not delay the others.
+     */
+    private int schedulerThreads = 2;
+
+    /**
+     * The number of milliseconds after which a query is logged as slow query. Zero disables the logging.
+     */
+    private long slowQueryThresholdMillis = 1000;
+}
@@ -9,51 +9,548 @@
  */
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
-import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static java.util.Collections.singletonList;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static com.google.common.io.ByteStreams.exhaust;
+import static com.google.common.io.ByteStreams.read;
+import static com.google.common.io.ByteStreams.skipFully;
 import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.google.common.io.CountingInputStream;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+@RequiredArgsConstructor
 @Repository
 public class DocumentRepository {
 
+    private static final String COLUMNS = "id, content, content_digest, content_encoding, content_length, content_type, "
+        + "encoded_content_length, filename, last_modified";
+    private static final String SELECT_PAGE = "SELECT " + COLUMNS + " FROM document WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM document ORDER BY id";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM document WHERE id = ?";
+    private static final String INSERT = "INSERT INTO document (id, content, content_digest, content_encoding, content_length, "
+        + "content_type, encoded_content_length, filename, inline_content, last_modified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_BY_ID = "DELETE FROM document WHERE id = ? RETURNING id, content";
+    private static final String DELETE_BY_IDS = "DELETE FROM document WHERE id = ANY (?) RETURNING id, content";
+    private static final String DELETE_MODIFIED_BEFORE = "DELETE FROM document WHERE id IN "
+        + "(SELECT id FROM document WHERE last_modified < ? ORDER BY id LIMIT ? FOR UPDATE) RETURNING id, content";
+    // Large objects are shared by all documents with the same content. If the content is already known, the reference count
+    // is incremented and the oid of the already existing large object is returned.
+    private static final String RETAIN_CONTENT = "INSERT INTO content (digest, encoding, oid, reference_count) "
+        + "VALUES (?, ?, ?, 1) ON CONFLICT (digest, encoding) DO UPDATE SET reference_count = content.reference_count + 1 "
+        + "RETURNING oid";
+    // Takes another reference on content which is already stored (and locks it), so that it does not need to be written again.
+    private static final String ACQUIRE_CONTENT =
+        "UPDATE content SET reference_count = reference_count + 1 WHERE digest = ? AND encoding = ? RETURNING oid";
+    private static final String RELEASE_CONTENT = "UPDATE content c SET reference_count = c.reference_count - r.count "
+        + "FROM (SELECT o::oid AS oid, count(*) AS count FROM unnest(?::int8[]) AS o GROUP BY o) r WHERE c.oid = r.oid";
+    private static final String REMOVE_UNREFERENCED_CONTENT = "WITH removed AS (DELETE FROM content "
+        + "WHERE oid = ANY (?::int8[]::oid[]) AND reference_count <= 0 RETURNING oid) SELECT lo_unlink(oid) FROM removed";
+    private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+    private static final String IDENTITY_ENCODING = "identity";
+    // The bytes of the content (as transferred from and to the clients) per read and per stored document.
+    private static final String METRIC_CONTENT_READ_BYTES = "documents.content.read.bytes";
+    private static final String METRIC_CONTENT_WRITTEN_BYTES = "documents.content.written.bytes";
+
+    private static final RowMapper<Document> DOCUMENT_ROW_MAPPER = DocumentRepository::mapDocument;
+
+    @NonNull
+    private final JdbcTemplate jdbcTemplate;
+
+    @NonNull
+    private final BufferPool contentBufferPool;
+
+    @NonNull
+    private final DocumentMetadataCache documentMetadataCache;
+
+    @NonNull
+    private final DocumentContentCache documentContentCache;
+
+    @NonNull
+    private final LargeObjectContentStorage largeObjectContentStorage;
+
+    @NonNull
+    private final InlineContentStorage inlineContentStorage;
+
+    @NonNull
+    private final ContentCompressionPolicy contentCompressionPolicy;
+
+    @NonNull
+    private final DocumentMetrics documentMetrics;
+
+    /**
+     * Returns the page of documents which follows the document with the given id (in the order of their ids). Passing no id
+     * returns the first page.
+     */
+    @Timed("documents.repository.find-all")
     @Transactional(readOnly = true)
-    public List<Document> findAll() {
-        // FIXME implement me... :)
-        return newArrayList();
+    public List<Document> findAll(String after, int size) {
+        return jdbcTemplate.query(SELECT_PAGE, DOCUMENT_ROW_MAPPER, after != null ? after : "", size);
     }
 
+    /**
+     * Hands all documents (in the order of their ids) one by one to the given consumer. The rows are fetched through a server
+     * side cursor in chunks of the given fetch size, so the documents are never held in memory as a whole.
+     */
+    @Timed("documents.repository.stream-all")
     @Transactional(readOnly = true)
-    public Document findOne(String id) {
-        // FIXME implement me... :)
-        return null;
+    public void streamAll(@NonNull Consumer<Document> consumer, int fetchSize) {
+        jdbcTemplate.query(connection -> {
+            // The driver only uses a cursor if the statement is forward only and executed with auto commit disabled.
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapDocument(rs, rs.getRow())));
     }
 
-    @Transactional(readOnly = true)
-    public boolean exists(String id) {
-        // FIXME implement me... :)
-        return false;
+    // Not transactional on purpose, a single query needs no transaction and a cache hit should not even occupy a connection.
+    @Timed("documents.repository.find-one")
+    public Document findOne(@NonNull String id) {
+        Document document = documentMetadataCache.get(id);
+        if (document != null) {
+            return document;
+        }
+
+        List<Document> documents = jdbcTemplate.query(SELECT_BY_ID, DOCUMENT_ROW_MAPPER, id);
+        if (documents.isEmpty()) {
+            return null;
+        }
+
+        document = documents.get(0);
+        documentMetadataCache.put(document);
+        return document;
+    }
+
+    // Not transactional on purpose, see findOne(String).
+    @Timed("documents.repository.exists")
+    public boolean exists(@NonNull String id) {
+        return findOne(id) != null;
+    }
+
+    /**
+     * Stores the given document together with the content read from the given source. The content is stored inline if it does
+     * not exceed the inline content threshold, otherwise it is streamed into a large object. The decision is based on the bytes
+     * actually read (and not on the length announced by the client), so the source is never read twice. The source is closed
+     * afterwards.
+     * <p>
+     * If the given template carries the digest the client declared for the content, the content is rejected with a
+     * {@link ContentDigestMismatchException} if its digest differs. If content with the declared digest is already stored, the
+     * source is only read to verify the digest but not written again.
+     */
+    @Timed("documents.repository.save")
+    @Transactional
+    public Document save(@NonNull Document template, @NonNull InputStream source) throws Exception {
+        List<Object[]> inserts = new ArrayList<>(1);
+        Document document = store(template, source, inserts);
+        jdbcTemplate.update(INSERT, inserts.get(0));
+        return document;
+    }
+
+    /**
+     * Stores the documents of the given sources (in the given order) in one transaction. The content of each source is stored
+     * like through {@link #save(Document, InputStream)} and closed afterwards, while the documents themselves are inserted in
+     * JDBC batches of the given size.
+     * 
+     * @return the stored documents in the order of their sources.
+     */
+    @Timed("documents.repository.save-all")
+    @Transactional
+    public List<Document> saveAll(@NonNull Iterator<DocumentSource> sources, int batchSize) throws Exception {
+        List<Document> documents = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>(batchSize);
+        while (sources.hasNext()) {
+            DocumentSource source = sources.next();
+            try (InputStream content = source.getContent()) {
+                documents.add(store(source.getTemplate(), content, inserts));
+            }
+            if (inserts.size() >= batchSize) {
+                jdbcTemplate.batchUpdate(INSERT, inserts);
+                inserts = new ArrayList<>(batchSize);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+        }
+        return documents;
+    }
+
+    /**
+     * Reads the content of the given document through the storage it is stored with into the given target. Small documents are
+     * served from (and put into) the content cache instead. Needs to be called inside a transaction because large objects are
+     * only accessible there.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    @Timed("documents.repository.read-content")
+    @Transactional(propagation = MANDATORY, readOnly = true)
+    public long readContent(@NonNull Document document, @NonNull OutputStream target) throws IOException, SQLException {
+        return readContent(document, target, 0, document.getContentLength());
+    }
+
+    /**
+     * Reads the given range of the content of the given document through the storage it is stored with into the given target.
+     * Only the requested range is transferred from the database. Small documents are served from (and put into) the content
+     * cache instead. Needs to be called inside a transaction because large objects are only accessible there.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    @Timed("documents.repository.read-content")
+    @Transactional(propagation = MANDATORY, readOnly = true)
+    public long readContent(@NonNull Document document, @NonNull OutputStream target, long offset, long length)
+        throws IOException, SQLException {
+        byte[] buffer = contentBufferPool.acquire();
+        try {
+            long read = readContent(document, target, offset, length, buffer);
+            documentMetrics.recordAmount(METRIC_CONTENT_READ_BYTES, read);
+            return read;
+        } finally {
+            contentBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Reads the content of the given document as stored (i.e. still encoded) into the given target, so that it can be served
+     * as is to clients which accept the encoding. Needs to be called inside a transaction because large objects are only
+     * accessible there.
+     * 
+     * @return the number of bytes written into the target.
+     */
+    @Timed("documents.repository.read-encoded-content")
+    @Transactional(propagation = MANDATORY, readOnly = true)
+    public long readEncodedContent(@NonNull Document document, @NonNull OutputStream target) throws IOException, SQLException {
+        if (document.getContentEncoding() == null) {
+            throw new IllegalArgumentException("The content of document '" + document.getId() + "' is not stored encoded!");
+        }
+
+        byte[] buffer = contentBufferPool.acquire();
+        try {
+            long read = contentStorage(document).read(document, target, 0, document.getEncodedContentLength(), buffer);
+            documentMetrics.recordAmount(METRIC_CONTENT_READ_BYTES, read);
+            return read;
+        } finally {
+            contentBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Reads the given range of the content of the given document as stored (i.e. still encoded if it is stored encoded). Does
+     * not need to be called inside a transaction, so the content can be read chunk by chunk without occupying a connection in
+     * between. Only supported for content which is stored as large object. The bytes read are not recorded as a read of the
+     * content because a read of the content is usually split into several calls.
+     *
+     * @return the bytes read, which are less than requested if the content ends before.
+     */
+    @Timed("documents.repository.read-stored-content")
+    public byte[] readStoredContent(@NonNull Document document, long offset, int length) {
+        if (!largeObjectContentStorage.isResponsibleFor(document)) {
+            throw new IllegalArgumentException("The content of document '" + document.getId() + "' is not a large object!");
+        }
+
+        return largeObjectContentStorage.readChunk(document, offset, length);
+    }
+
+    @Timed("documents.repository.delete-if-exists")
+    @Transactional
+    public boolean deleteIfExists(@NonNull String id) {
+        invalidateCaches(id);
+        return !delete(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_BY_ID);
+            statement.setString(1, id);
+            return statement;
+        }).isEmpty();
     }
 
+    /**
+     * Deletes the documents with the given ids (and their content) through a single statement. The number of ids should be
+     * bounded by the caller because all rows are locked until the transaction is completed.
+     * 
+     * @return the ids of the documents which were deleted.
+     */
+    @Timed("documents.repository.delete-all-if-exist")
     @Transactional
-    public Document save(Document template, InputStream source) throws Exception {
-        // FIXME implement me... :)
-        return null;
+    public List<String> deleteAllIfExist(@NonNull Collection<String> ids) {
+        List<String> deleted = delete(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_BY_IDS);
+            statement.setArray(1, connection.createArrayOf("varchar", ids.toArray()));
+            return statement;
+        });
+        invalidateCaches(deleted);
+        return deleted;
     }
 
+    /**
+     * Deletes up to the given number of documents (and their content) which were stored before the given point in time (in
+     * milliseconds since the epoch) through a single statement.
+     * 
+     * @return the ids of the documents which were deleted.
+     */
+    @Timed("documents.repository.delete-all-modified-before")
     @Transactional
-    public boolean deleteIfExists(String id) {
-        // FIXME implement me... :)
-        return false;
+    public List<String> deleteAllModifiedBefore(long lastModified, int limit) {
+        List<String> deleted = delete(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_MODIFIED_BEFORE);
+            statement.setTimestamp(1, new Timestamp(lastModified));
+            statement.setInt(2, limit);
+            return statement;
+        });
+        invalidateCaches(deleted);
+        return deleted;
     }
 
-    @Transactional(propagation = MANDATORY)
-    public void deleteContent(String id) {
-        // FIXME implement me... :)
+    // Deletes the documents through the given statement (which returns the ids and content oids of the deleted rows) and
+    // releases their content. Returns the ids of the deleted documents.
+    private List<String> delete(PreparedStatementCreator statementCreator) {
+        List<String> ids = new ArrayList<>();
+        List<Long> contentOids = new ArrayList<>();
+        jdbcTemplate.query(statementCreator, (RowCallbackHandler) rs -> {
+            ids.add(rs.getString("id"));
+            long contentOid = rs.getLong("content");
+            if (!rs.wasNull()) {
+                contentOids.add(contentOid);
+            }
+        });
+        releaseContent(contentOids);
+        return ids;
     }
 
+    // Returns the oid of the large object which holds the content with the given digest (and encoding) if it is already stored,
+    // or null if it is not (yet).
+    private Long acquireContent(String contentDigest, String contentEncoding) {
+        List<Long> contentOids = jdbcTemplate.queryForList(ACQUIRE_CONTENT, Long.class, contentDigest,
+            contentEncoding != null ? contentEncoding : IDENTITY_ENCODING);
+        return contentOids.isEmpty() ? null : contentOids.get(0);
+    }
+
+    // Returns the oid of the large object which holds the content with the given digest (and encoding) from now on. If the
+    // content is already stored, the given (just written) large object is a duplicate and unlinked again.
+    private long retainContent(String contentDigest, String contentEncoding, long contentOid) throws SQLException {
+        long retainedContentOid = jdbcTemplate.queryForObject(RETAIN_CONTENT, Long.class, contentDigest,
+            contentEncoding != null ? contentEncoding : IDENTITY_ENCODING, contentOid);
+        if (retainedContentOid != contentOid) {
+            largeObjectContentStorage.unlink(contentOid);
+        }
+        return retainedContentOid;
+    }
+
+    // Decrements the reference counts of the given large objects (an oid is given once per released reference) and unlinks
+    // the large objects which are not referenced anymore. The rows of the content table stay locked until the transaction is
+    // completed, so a concurrent upload of the same content waits instead of referencing a large object which is unlinked.
+    private void releaseContent(List<Long> contentOids) {
+        if (contentOids.isEmpty()) {
+            return;
+        }
+
+        Long[] oids = contentOids.toArray(new Long[contentOids.size()]);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RELEASE_CONTENT);
+            statement.setArray(1, connection.createArrayOf("int8", oids));
+            return statement;
+        });
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REMOVE_UNREFERENCED_CONTENT);
+            statement.setArray(1, connection.createArrayOf("int8", oids));
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            // nothing to do, the large object is unlinked while the row is selected
+        });
+    }
+
+    // Returns the cached content of the given document, which needs to be released once it is read. If the content is not cached
+    // yet but small enough, it is read from its storage into the cache first. Returns null if the content is not cached and
+    // cannot be cached (e.g. because the memory of the cache is held by evicted content which is still read).
+    private CachedContent cachedContent(Document document, byte[] buffer) throws IOException, SQLException {
+        if (!documentContentCache.isCacheable(document)) {
+            return null;
+        }
+
+        CachedContent content = documentContentCache.get(document.getId());
+        if (content != null) {
+            return content;
+        }
+
+        int contentLength = document.getContentLength().intValue();
+        content = documentContentCache.allocate(contentLength);
+        if (content == null) {
+            return null;
+        }
+
+        long read;
+        try {
+            OutputStream target = content.asOutputStream();
+            read = document.getContentEncoding() != null ? readDecodedContent(document, target, 0, contentLength, buffer)
+                : contentStorage(document).read(document, target, 0, contentLength, buffer);
+        } catch (IOException | SQLException | RuntimeException e) {
+            content.release();
+            throw e;
+        }
+        // The blocks of the cache are reused, so content which ends early would be followed by the bytes of other content.
+        if (read != contentLength) {
+            content.release();
+            return null;
+        }
+
+        documentContentCache.put(document.getId(), content);
+        return content;
+    }
+
+    // A concurrent lookup may put the document into the caches again until the deletion is committed, therefore the caches are
+    // invalidated once more after the transaction is completed.
+    private void invalidateCaches(String id) {
+        invalidateCaches(singletonList(id));
+    }
+
+    private void invalidateCaches(Collection<String> ids) {
+        ids.forEach(this::invalidateCachesNow);
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(DocumentRepository.this::invalidateCachesNow);
+                }
+            });
+        }
+    }
+
+    private void invalidateCachesNow(String id) {
+        documentMetadataCache.invalidate(id);
+        documentContentCache.invalidate(id);
+    }
+
+    // Stores the content read from the given source and returns the document. The document itself is not inserted but the
+    // arguments of its insert are added to the given list.
+    private Document store(Document template, InputStream source, List<Object[]> inserts) throws Exception {
+        // The digest and the length are computed on the fly (based on the content as such) while the content is stored.
+        CountingInputStream countingSource = new CountingInputStream(source);
+        DigestInputStream digestSource =
+            new DigestInputStream(countingSource, MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM));
+        // The content is compressed while it is stored, so which storage is used depends on the compressed length.
+        ContentCodec codec = contentCompressionPolicy.getCodec(template.getContentType());
+        String contentEncoding = codec != null ? codec.getEncoding() : null;
+        // Without a declared digest, the digest of the content is only known once the content is written.
+        Long acquiredContentOid =
+            template.getContentDigest() != null ? acquireContent(template.getContentDigest(), contentEncoding) : null;
+
+        // The encoded source is closed in any case because the resources of the codec (e.g. a deflater) are freed through it.
+        StoredContent storedContent;
+        byte[] buffer = contentBufferPool.acquire();
+        try (InputStream encodedSource = codec != null ? codec.encode(digestSource) : digestSource) {
+            if (acquiredContentOid != null) {
+                // The content is still encoded to determine the length it is stored with.
+                storedContent = new StoredContent(acquiredContentOid, null, exhaust(encodedSource));
+            } else {
+                int headLength = read(encodedSource, buffer, 0, inlineContentStorage.getMaximumLength() + 1);
+                ContentStorage contentStorage =
+                    headLength <= inlineContentStorage.getMaximumLength() ? inlineContentStorage : largeObjectContentStorage;
+                storedContent = contentStorage.write(buffer, headLength, encodedSource, buffer);
+            }
+        } finally {
+            contentBufferPool.release(buffer);
+        }
+
+        // Throwing rolls back the reference taken on the acquired content as well as the content written.
+        String contentDigest = base16().lowerCase().encode(digestSource.getMessageDigest().digest());
+        if (template.getContentDigest() != null && !template.getContentDigest().equals(contentDigest)) {
+            throw new ContentDigestMismatchException(template.getContentDigest(), contentDigest);
+        }
+
+        Long contentOid;
+        if (acquiredContentOid != null) {
+            contentOid = acquiredContentOid;
+        } else {
+            contentOid = storedContent.getContentOid() != null
+                ? retainContent(contentDigest, contentEncoding, storedContent.getContentOid()) : null;
+        }
+        Document document = new Document(template.getId(), template.getFilename(), template.getContentType(),
+            countingSource.getCount(), contentOid, contentDigest, currentTimeMillis());
+        if (codec != null) {
+            document.setContentEncoding(contentEncoding);
+            document.setEncodedContentLength(storedContent.getContentLength());
+        }
+
+        documentMetrics.recordAmount(METRIC_CONTENT_WRITTEN_BYTES, document.getContentLength());
+
+        inserts.add(new Object[] { document.getId(), document.getContentOid(), document.getContentDigest(),
+            document.getContentEncoding(), document.getContentLength(), document.getContentType(),
+            document.getEncodedContentLength(), document.getFilename(), storedContent.getInlineContent(),
+            new Timestamp(document.getLastModified()) });
+        return document;
+    }
+
+    private long readContent(Document document, OutputStream target, long offset, long length, byte[] buffer)
+        throws IOException, SQLException {
+        CachedContent cachedContent = cachedContent(document, buffer);
+        if (cachedContent != null) {
+            try {
+                return cachedContent.copy(target, offset, length, buffer);
+            } finally {
+                cachedContent.release();
+            }
+        }
+        if (document.getContentEncoding() != null) {
+            return readDecodedContent(document, target, offset, length, buffer);
+        }
+        return contentStorage(document).read(document, target, offset, length, buffer);
+    }
+
+    // Encoded content is decoded from the beginning, so skipping to the offset of a range costs as much as reading up to it.
+    private long readDecodedContent(Document document, OutputStream target, long offset, long length, byte[] buffer)
+        throws IOException, SQLException {
+        ContentCodec codec = contentCompressionPolicy.getCodecForEncoding(document.getContentEncoding());
+        try (InputStream decoded = codec.decode(contentStorage(document).open(document, buffer.length))) {
+            skipFully(decoded, offset);
+            long count = 0;
+            int read;
+            while (count < length && (read = decoded.read(buffer, 0, (int) min(buffer.length, length - count))) != -1) {
+                target.write(buffer, 0, read);
+                count += read;
+            }
+            return count;
+        }
+    }
+
+    private ContentStorage contentStorage(Document document) {
+        return inlineContentStorage.isResponsibleFor(document) ? inlineContentStorage : largeObjectContentStorage;
+    }
+
+    private static Document mapDocument(ResultSet rs, int rowNum) throws SQLException {
+        // The oid is null if the content is stored inline.
+        Long contentOid = rs.getObject("content") != null ? rs.getLong("content") : null;
+        Document document = new Document(rs.getString("id"), rs.getString("filename"), rs.getString("content_type"),
+            rs.getLong("content_length"), contentOid, rs.getString("content_digest"), rs.getTimestamp("last_modified").getTime());
+        document.setContentEncoding(rs.getString("content_encoding"));
+        Object encodedContentLength = rs.getObject("encoded_content_length");
+        document.setEncodedContentLength(encodedContentLength != null ? ((Number) encodedContentLength).longValue() : null);
+        return document;
+    }
 }
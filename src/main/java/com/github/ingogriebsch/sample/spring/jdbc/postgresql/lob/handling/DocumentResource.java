@@ -1,9 +1,33 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.util.Collections.emptyList;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
 import lombok.Value;
 
+@AllArgsConstructor
 @Value
 public class DocumentResource {
 
-    String id;
+    // The document is resolved by the controller and carried along so it needs not be looked up again during the transfer.
+    @NonNull
+    Document document;
+
+    // The ranges of the content which are requested. If empty the whole content is requested.
+    @NonNull
+    List<ContentRange> ranges;
+
+    // Whether the content is served as stored (i.e. encoded). Only possible if the whole content is requested.
+    boolean encoded;
+
+    public DocumentResource(Document document) {
+        this(document, emptyList());
+    }
+
+    public DocumentResource(Document document, List<ContentRange> ranges) {
+        this(document, ranges, false);
+    }
 }
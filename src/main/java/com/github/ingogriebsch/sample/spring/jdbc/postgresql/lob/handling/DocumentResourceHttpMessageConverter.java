@@ -1,19 +1,20 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
-import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Arrays.asList;
 
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.MediaType.ALL;
 import static org.springframework.http.MediaType.parseMediaType;
-import static org.springframework.util.StreamUtils.copy;
+import static org.springframework.util.MimeTypeUtils.generateMultipartBoundaryString;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.sql.Blob;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -27,6 +28,7 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 public class DocumentResourceHttpMessageConverter implements HttpMessageConverter<DocumentResource> {
@@ -59,41 +61,142 @@ public class DocumentResourceHttpMessageConverter implements HttpMessageConverte
     @Transactional
     public void write(@NonNull DocumentResource documentResource, MediaType contentType, @NonNull HttpOutputMessage outputMessage)
         throws IOException, HttpMessageNotWritableException {
-        Document document = obtainDocument(documentResource, documentRepository);
-        setHeaders(document, outputMessage);
-        writeContent(document, outputMessage);
+        prepare(documentResource, outputMessage.getHeaders()).writeTo(outputMessage.getBody());
     }
 
-    static Document obtainDocument(DocumentResource documentResource, DocumentRepository documentRepository) {
-        Document document = documentRepository.findOne(documentResource.getId());
-        if (document == null) {
-            throw new HttpMessageNotWritableException(format("Document resource '%s' is not available!", documentResource));
+    /**
+     * Sets the headers of the response the given resource is transferred with and returns the body which transfers the content
+     * of the resource. The body needs to be written within a transaction (see
+     * {@link #transfer(StreamingResponseBody, OutputStream)}).
+     */
+    public StreamingResponseBody prepare(@NonNull DocumentResource documentResource, @NonNull HttpHeaders headers) {
+        Document document = documentResource.getDocument();
+        List<ContentRange> ranges = documentResource.getRanges();
+        if (ranges.size() > 1) {
+            String boundary = generateMultipartBoundaryString();
+            setMultipartHeaders(document, boundary, headers);
+            return body -> writeMultipartContent(document, ranges, boundary, body, documentRepository);
         }
-        return document;
+        if (documentResource.isEncoded()) {
+            setEncodedHeaders(document, headers);
+            return body -> writeEncodedContent(document, body, documentRepository);
+        }
+        if (ranges.size() == 1) {
+            setHeaders(document, ranges.get(0), headers);
+            return body -> writeContent(document, ranges.get(0), body, documentRepository);
+        }
+        setHeaders(document, headers);
+        return body -> writeContent(document, body, documentRepository);
+    }
+
+    /**
+     * Sets the headers of the response the given resource is transferred with and returns the content which is transferred
+     * with non-blocking I/O (see {@link NonBlockingContentReturnValueHandler}). Returns null if the content of the resource
+     * cannot be transferred this way, i.e. if it is not stored as large object, needs to be decoded or consists of several
+     * ranges.
+     */
+    public NonBlockingContent prepareNonBlocking(@NonNull DocumentResource documentResource, @NonNull HttpHeaders headers) {
+        Document document = documentResource.getDocument();
+        List<ContentRange> ranges = documentResource.getRanges();
+        if (document.getContentOid() == null || ranges.size() > 1
+            || document.getContentEncoding() != null && !documentResource.isEncoded()) {
+            return null;
+        }
+        if (documentResource.isEncoded()) {
+            setEncodedHeaders(document, headers);
+            return new NonBlockingContent(document, 0, document.getEncodedContentLength());
+        }
+        if (ranges.size() == 1) {
+            ContentRange range = ranges.get(0);
+            setHeaders(document, range, headers);
+            return new NonBlockingContent(document, range.getStart(), range.getLength());
+        }
+        setHeaders(document, headers);
+        return new NonBlockingContent(document, 0, document.getContentLength());
+    }
+
+    /**
+     * Writes the given body (as returned by {@link #prepare(DocumentResource, HttpHeaders)}) to the given target within a
+     * transaction. The transaction is bound to the calling thread, so the body may be written on another thread than the one the
+     * resource was prepared on.
+     */
+    @Transactional
+    public void transfer(@NonNull StreamingResponseBody body, @NonNull OutputStream target) throws IOException {
+        body.writeTo(target);
+    }
+
+    static void writeContent(Document document, OutputStream body, DocumentRepository documentRepository) throws IOException {
+        try {
+            documentRepository.readContent(document, body);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static void writeEncodedContent(Document document, OutputStream body, DocumentRepository documentRepository)
+        throws IOException {
+        try {
+            documentRepository.readEncodedContent(document, body);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static void writeContent(Document document, ContentRange range, OutputStream body, DocumentRepository documentRepository)
+        throws IOException {
+        writeRange(document, range, body, documentRepository);
     }
 
-    static void writeContent(Document document, HttpOutputMessage outputMessage) throws IOException {
-        Blob content = document.getContent();
+    static void writeMultipartContent(Document document, List<ContentRange> ranges, String boundary, OutputStream body,
+        DocumentRepository documentRepository) throws IOException {
+        String contentType = parseMediaType(document.getContentType()).toString();
+        for (ContentRange range : ranges) {
+            StringBuilder partHeaders = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+            partHeaders.append(CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+            partHeaders.append(CONTENT_RANGE).append(": ").append(range.toContentRangeHeader(document.getContentLength()))
+                .append("\r\n\r\n");
+            body.write(partHeaders.toString().getBytes(US_ASCII));
+            writeRange(document, range, body, documentRepository);
+        }
+        body.write(new StringBuilder("\r\n--").append(boundary).append("--\r\n").toString().getBytes(US_ASCII));
+    }
+
+    private static void writeRange(Document document, ContentRange range, OutputStream target,
+        DocumentRepository documentRepository) throws IOException {
         try {
-            try (InputStream inputStream = new BufferedInputStream(content.getBinaryStream())) {
-                copy(inputStream, outputMessage.getBody());
-            }
+            documentRepository.readContent(document, target, range.getStart(), range.getLength());
         } catch (SQLException e) {
             throw new IOException(e);
-        } finally {
-            try {
-                content.free();
-            } catch (SQLException e) {
-                throw new IOException(e);
-            }
         }
     }
 
-    static void setHeaders(Document document, HttpOutputMessage outputMessage) {
-        HttpHeaders headers = outputMessage.getHeaders();
+    static void setHeaders(Document document, HttpHeaders headers) {
         headers.set(CONTENT_LENGTH, "" + document.getContentLength());
         headers.set(CONTENT_TYPE, parseMediaType(document.getContentType()).toString());
         headers.set(CONTENT_DISPOSITION, ContentDispositionUtils.attachment(document.getFilename()));
+        headers.set(ACCEPT_RANGES, "bytes");
+    }
+
+    static void setEncodedHeaders(Document document, HttpHeaders headers) {
+        headers.set(CONTENT_LENGTH, "" + document.getEncodedContentLength());
+        headers.set(CONTENT_ENCODING, document.getContentEncoding());
+        headers.set(CONTENT_TYPE, parseMediaType(document.getContentType()).toString());
+        headers.set(CONTENT_DISPOSITION, ContentDispositionUtils.attachment(document.getFilename()));
+        headers.set(ACCEPT_RANGES, "bytes");
+    }
+
+    static void setHeaders(Document document, ContentRange range, HttpHeaders headers) {
+        headers.set(CONTENT_LENGTH, "" + range.getLength());
+        headers.set(CONTENT_RANGE, range.toContentRangeHeader(document.getContentLength()));
+        headers.set(CONTENT_TYPE, parseMediaType(document.getContentType()).toString());
+        headers.set(CONTENT_DISPOSITION, ContentDispositionUtils.attachment(document.getFilename()));
+        headers.set(ACCEPT_RANGES, "bytes");
+    }
+
+    static void setMultipartHeaders(Document document, String boundary, HttpHeaders headers) {
+        headers.set(CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        headers.set(CONTENT_DISPOSITION, ContentDispositionUtils.attachment(document.getFilename()));
+        headers.set(ACCEPT_RANGES, "bytes");
     }
 
 }
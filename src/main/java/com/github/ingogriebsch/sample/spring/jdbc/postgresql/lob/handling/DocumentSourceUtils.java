@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.max;
+import static java.net.URLConnection.guessContentTypeFromName;
+import static java.util.UUID.randomUUID;
+
+import static com.google.common.collect.Iterators.transform;
+import static lombok.AccessLevel.PRIVATE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.google.common.collect.AbstractIterator;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.springframework.web.multipart.MultipartFile;
+
+@NoArgsConstructor(access = PRIVATE)
+public final class DocumentSourceUtils {
+
+    /**
+     * Returns the sources of the given files. The content of a file is opened not before its source is requested, so only one
+     * file is open at a time (given that the content of a source is closed before the next one is requested).
+     */
+    public static Iterator<DocumentSource> fromMultipartFiles(@NonNull List<MultipartFile> files) {
+        return transform(files.iterator(), file -> {
+            try {
+                return new DocumentSource(new Document(randomUUID().toString(), file.getOriginalFilename(),
+                    file.getContentType(), file.getSize()), file.getInputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the sources of the files contained in the given archive while the archive is read, i.e. the archive is never
+     * buffered as a whole. Closing the content of a source does not close the archive, which needs to be closed by the caller.
+     * The rest of an entry which is not read completely is skipped once the next source is requested. Directories are skipped.
+     * <p>
+     * Because the (uncompressed) size of an entry is not known before it is read, the archive is limited while it is read: a
+     * {@link ContentTooLargeException} is thrown once the content of an entry exceeds the given maximum entry size, once the
+     * contents of all entries exceed the given maximum size or once the archive contains more than the given maximum number of
+     * entries (directories included). A negative maximum disables the respective limit.
+     */
+    public static Iterator<DocumentSource> fromZipArchive(@NonNull ZipInputStream archive, long maximumEntrySize,
+        long maximumSize, int maximumEntries) {
+        InputStream content = new FilterInputStream(limit(archive, maximumSize)) {
+
+            // The rest of the entry is skipped through the next call to getNextEntry(). Skipping it here would inflate the rest
+            // of an entry which exceeded a limit, just to be discarded.
+            @Override
+            public void close() {
+            }
+        };
+        return new AbstractIterator<DocumentSource>() {
+
+            private int entries;
+
+            @Override
+            protected DocumentSource computeNext() {
+                try {
+                    ZipEntry entry;
+                    while ((entry = archive.getNextEntry()) != null) {
+                        if (maximumEntries >= 0 && ++entries > maximumEntries) {
+                            throw new ContentTooLargeException(
+                                "The archive contains more than " + maximumEntries + " entries!");
+                        }
+                        if (!entry.isDirectory()) {
+                            return new DocumentSource(template(entry), limit(content, maximumEntrySize));
+                        }
+                    }
+                    return endOfData();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static InputStream limit(InputStream in, long maximumSize) {
+        return maximumSize >= 0 ? new SizeLimitedInputStream(in, maximumSize) : in;
+    }
+
+    // The size of an entry is not known upfront if the archive is read as stream, the actual size is computed while the content
+    // is stored anyway.
+    private static Document template(ZipEntry entry) {
+        String filename = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+        String contentType = guessContentTypeFromName(filename);
+        return new Document(randomUUID().toString(), filename, contentType != null ? contentType : APPLICATION_OCTET_STREAM_VALUE,
+            max(entry.getSize(), 0));
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import lombok.Value;
+
+/**
+ * Marks a response which streams all documents (as a JSON array) while they are read from the database.
+ */
+@Value
+public class DocumentStreamResource {
+
+    int fetchSize;
+}
@@ -0,0 +1,88 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Arrays.asList;
+
+import static com.fasterxml.jackson.core.JsonEncoding.UTF8;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.NonNull;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+public class DocumentStreamResourceHttpMessageConverter implements HttpMessageConverter<DocumentStreamResource> {
+
+    @NonNull
+    private final DocumentRepository documentRepository;
+
+    @NonNull
+    private final ObjectMapper objectMapper;
+
+    // Flushing after each document would hand every single row as a separate chunk to the client.
+    private final ObjectWriter documentWriter;
+
+    public DocumentStreamResourceHttpMessageConverter(@NonNull DocumentRepository documentRepository,
+        @NonNull ObjectMapper objectMapper) {
+        this.documentRepository = documentRepository;
+        this.objectMapper = objectMapper;
+        this.documentWriter = objectMapper.writerFor(Document.class).without(FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return DocumentStreamResource.class.isAssignableFrom(clazz)
+            && (mediaType == null || APPLICATION_JSON.isCompatibleWith(mediaType));
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return asList(new MediaType[] { APPLICATION_JSON_UTF8 });
+    }
+
+    @Override
+    public DocumentStreamResource read(Class<? extends DocumentStreamResource> clazz, HttpInputMessage inputMessage)
+        throws IOException, HttpMessageNotReadableException {
+        throw new UnsupportedOperationException("Operation read is not supported through this converter!");
+    }
+
+    @Override
+    public void write(@NonNull DocumentStreamResource documentStreamResource, MediaType contentType,
+        @NonNull HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        outputMessage.getHeaders().setContentType(APPLICATION_JSON_UTF8);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody(), UTF8)) {
+            generator.writeStartArray();
+            try {
+                documentRepository.streamAll(document -> writeDocument(document, generator),
+                    documentStreamResource.getFetchSize());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeDocument(Document document, JsonGenerator generator) {
+        try {
+            documentWriter.writeValue(generator, document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes resumable uploads (together with their chunks) which were neither committed nor deleted by their clients within the
+ * expiration time (see 'document.upload-session-expire-after-seconds').
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiredUploadSessionReaper {
+
+    @NonNull
+    private final UploadSessionRepository uploadSessionRepository;
+
+    @NonNull
+    private final DocumentProperties documentProperties;
+
+    @Scheduled(initialDelayString = "${document.upload-session-reaper-interval-millis:600000}",
+        fixedDelayString = "${document.upload-session-reaper-interval-millis:600000}")
+    public void reap() {
+        long created = currentTimeMillis() - SECONDS.toMillis(documentProperties.getUploadSessionExpireAfterSeconds());
+        int deleted = uploadSessionRepository.deleteCreatedBefore(created);
+        if (deleted > 0) {
+            log.info("Deleted {} expired upload sessions.", deleted);
+        }
+    }
+}
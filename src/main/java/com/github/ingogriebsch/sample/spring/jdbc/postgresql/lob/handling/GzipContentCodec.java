@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.enumeration;
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.GZIPInputStream;
+
+import lombok.NonNull;
+
+/**
+ * A codec which encodes the content in the gzip format, so that the encoded content can be served as is to clients which
+ * accept the gzip content coding.
+ */
+public class GzipContentCodec implements ContentCodec {
+
+    private static final String ENCODING = "gzip";
+    private static final int BUFFER_SIZE = 8192;
+    // magic number, compression method (deflate), no flags, no modification time, no extra flags, unknown operating system
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public InputStream encode(@NonNull InputStream source) {
+        return new GzipCompressingInputStream(source);
+    }
+
+    @Override
+    public InputStream decode(@NonNull InputStream source) throws IOException {
+        return new GZIPInputStream(source, BUFFER_SIZE);
+    }
+
+    // The JDK only offers gzip compression through an output stream, which would need the content to be pushed through it.
+    // This stream compresses while it is read instead: the header, the raw deflate stream and the trailer (which is computed
+    // once the source is exhausted).
+    private static class GzipCompressingInputStream extends SequenceInputStream {
+
+        private final Deflater deflater;
+
+        GzipCompressingInputStream(InputStream source) {
+            this(source, new CRC32(), new Deflater(DEFAULT_COMPRESSION, true));
+        }
+
+        private GzipCompressingInputStream(InputStream source, CRC32 checksum, Deflater deflater) {
+            super(enumeration(asList(new ByteArrayInputStream(HEADER),
+                new DeflaterInputStream(new CheckedInputStream(source, checksum), deflater, BUFFER_SIZE),
+                new TrailerInputStream(checksum, deflater))));
+            this.deflater = deflater;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    private static class TrailerInputStream extends InputStream {
+
+        private final CRC32 checksum;
+
+        private final Deflater deflater;
+
+        private InputStream trailer;
+
+        TrailerInputStream(CRC32 checksum, Deflater deflater) {
+            this.checksum = checksum;
+            this.deflater = deflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return trailer().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return trailer().read(b, off, len);
+        }
+
+        // The checksum and the size of the uncompressed content (both in little endian order).
+        private InputStream trailer() {
+            if (trailer == null) {
+                long crc = checksum.getValue();
+                long size = deflater.getBytesRead();
+                trailer = new ByteArrayInputStream(new byte[] { (byte) crc, (byte) (crc >> 8), (byte) (crc >> 16),
+                    (byte) (crc >> 24), (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24) });
+            }
+            return trailer;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+import static java.util.Arrays.copyOf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the content of small documents inline in a bytea column of the document row, which is read through a single query and
+ * does neither occupy large object pages nor needs the additional round-trips to open, read and close a large object.
+ */
+@RequiredArgsConstructor
+@Repository
+public class InlineContentStorage implements ContentStorage {
+
+    // The range is cut out on the server side, so only the requested bytes are transferred.
+    private static final String SELECT_CONTENT_BY_ID =
+        "SELECT substring(inline_content FROM ?::int FOR ?::int) FROM document WHERE id = ? AND inline_content IS NOT NULL";
+
+    @NonNull
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The maximum length (in bytes) of the content which is stored inline.
+     */
+    @Getter
+    private final int maximumLength;
+
+    // The decision whether the content is stored inline is based on the first chunk, so the threshold can't exceed it.
+    @Autowired
+    public InlineContentStorage(@NonNull JdbcTemplate jdbcTemplate, @NonNull DocumentProperties documentProperties) {
+        this(jdbcTemplate, min(documentProperties.getInlineContentThreshold(), documentProperties.getContentChunkSize() - 1));
+    }
+
+    @Override
+    public boolean isResponsibleFor(@NonNull Document document) {
+        return document.getContentOid() == null;
+    }
+
+    @Override
+    @Timed("content.inline.write")
+    public StoredContent write(@NonNull byte[] head, int headLength, @NonNull InputStream remainder, byte[] buffer)
+        throws IOException {
+        if (headLength > maximumLength || remainder.read() != -1) {
+            throw new IllegalArgumentException("Content is too large to be stored inline!");
+        }
+        return new StoredContent(null, copyOf(head, headLength), headLength);
+    }
+
+    @Override
+    @Timed("content.inline.read")
+    public long read(@NonNull Document document, @NonNull OutputStream target, long offset, long length, byte[] buffer)
+        throws IOException {
+        byte[] content = readContent(document, offset, length);
+        target.write(content);
+        return content.length;
+    }
+
+    @Override
+    @Timed("content.inline.open")
+    public InputStream open(@NonNull Document document, int chunkSize) {
+        return new ByteArrayInputStream(readContent(document, 0, Integer.MAX_VALUE));
+    }
+
+    private byte[] readContent(Document document, long offset, long length) {
+        // substring is 1-based
+        return jdbcTemplate.queryForObject(SELECT_CONTENT_BY_ID, byte[].class, offset + 1, length, document.getId());
+    }
+}
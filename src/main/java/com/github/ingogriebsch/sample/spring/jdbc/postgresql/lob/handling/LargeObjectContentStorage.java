@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.postgresql.largeobject.LargeObject.SEEK_SET;
+import static org.postgresql.largeobject.LargeObjectManager.READ;
+import static org.postgresql.largeobject.LargeObjectManager.WRITE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.BlobInputStream;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the content of documents as PostgreSQL large objects which are streamed chunk by chunk.
+ */
+@RequiredArgsConstructor
+@Repository
+public class LargeObjectContentStorage implements ContentStorage {
+
+    private static final String READ_CHUNK = "SELECT lo_get(?::oid, ?, ?)";
+
+    @NonNull
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean isResponsibleFor(@NonNull Document document) {
+        return document.getContentOid() != null;
+    }
+
+    @Override
+    @Timed("content.large-object.write")
+    public StoredContent write(@NonNull byte[] head, int headLength, @NonNull InputStream remainder, @NonNull byte[] buffer)
+        throws IOException, SQLException {
+        LargeObjectManager largeObjectManager = largeObjectManager();
+        long contentOid = largeObjectManager.createLO(WRITE);
+
+        LargeObject largeObject = largeObjectManager.open(contentOid, WRITE);
+        try {
+            largeObject.write(head, 0, headLength);
+            long contentLength = headLength + LargeObjectUtils.copy(remainder, largeObject, buffer);
+            return new StoredContent(contentOid, null, contentLength);
+        } finally {
+            largeObject.close();
+        }
+    }
+
+    /**
+     * Reads the given range of the content directly out of the large object. The large object is positioned on the server side,
+     * so the skipped bytes are never transferred. The content is read in chunks of the size of the given buffer.
+     */
+    @Override
+    @Timed("content.large-object.read")
+    public long read(@NonNull Document document, @NonNull OutputStream target, long offset, long length, @NonNull byte[] buffer)
+        throws IOException, SQLException {
+        LargeObject largeObject = largeObjectManager().open(document.getContentOid(), READ);
+        try {
+            if (offset > 0) {
+                largeObject.seek64(offset, SEEK_SET);
+            }
+            return LargeObjectUtils.copy(largeObject, target, buffer, length);
+        } finally {
+            largeObject.close();
+        }
+    }
+
+    // Closing the stream closes the large object as well.
+    @Override
+    @Timed("content.large-object.open")
+    public InputStream open(@NonNull Document document, int chunkSize) throws SQLException {
+        return new BlobInputStream(largeObjectManager().open(document.getContentOid(), READ), chunkSize);
+    }
+
+    /**
+     * Reads the given range of the content of the given document (as stored) through a single statement. Other than the other
+     * read methods this one does not need to be called inside a transaction, i.e. the connection is only occupied for the
+     * duration of the statement.
+     *
+     * @return the bytes read, which are less than requested if the content ends before.
+     */
+    @Timed("content.large-object.read-chunk")
+    public byte[] readChunk(@NonNull Document document, long offset, int length) {
+        return jdbcTemplate.queryForObject(READ_CHUNK, byte[].class, document.getContentOid(), offset, length);
+    }
+
+    /**
+     * Unlinks the large object with the given oid.
+     * 
+     * @return the size (in bytes) of the unlinked large object.
+     */
+    @Timed("content.large-object.unlink")
+    public long unlink(long contentOid) throws SQLException {
+        LargeObjectManager largeObjectManager = largeObjectManager();
+        long size;
+        LargeObject largeObject = largeObjectManager.open(contentOid, READ);
+        try {
+            size = largeObject.size64();
+        } finally {
+            largeObject.close();
+        }
+        largeObjectManager.unlink(contentOid);
+        return size;
+    }
+
+    // Large objects are only usable inside the transaction which is bound to the current thread, therefore the manager must
+    // only be obtained (and used) from inside a transactional method.
+    private LargeObjectManager largeObjectManager() {
+        return jdbcTemplate.execute(
+            (ConnectionCallback<LargeObjectManager>) connection -> connection.unwrap(PGConnection.class).getLargeObjectAPI());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.postgresql.largeobject.LargeObject;
+
+@NoArgsConstructor(access = PRIVATE)
+public final class LargeObjectUtils {
+
+    /**
+     * Copies the given source into the given large object chunk by chunk, using the given buffer as the only intermediate
+     * storage. The source is neither buffered as a whole nor closed.
+     * 
+     * @return the number of bytes written into the large object.
+     */
+    public static long copy(@NonNull InputStream source, @NonNull LargeObject target, @NonNull byte[] buffer)
+        throws IOException, SQLException {
+        long count = 0;
+        int read;
+        while ((read = source.read(buffer)) != -1) {
+            target.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Copies the content of the given large object (starting at its current position) into the given target chunk by chunk,
+     * using the given buffer as the only intermediate storage. The target is neither flushed nor closed.
+     * 
+     * @return the number of bytes read from the large object.
+     */
+    public static long copy(@NonNull LargeObject source, @NonNull OutputStream target, @NonNull byte[] buffer)
+        throws IOException, SQLException {
+        return copy(source, target, buffer, Long.MAX_VALUE);
+    }
+
+    /**
+     * Copies at most the given number of bytes of the given large object (starting at its current position) into the given
+     * target chunk by chunk, using the given buffer as the only intermediate storage. The target is neither flushed nor closed.
+     * 
+     * @return the number of bytes read from the large object.
+     */
+    public static long copy(@NonNull LargeObject source, @NonNull OutputStream target, @NonNull byte[] buffer, long length)
+        throws IOException, SQLException {
+        if (buffer.length == 0) {
+            throw new IllegalArgumentException("Buffer must not be empty!");
+        }
+
+        // A large object signals its end through an empty chunk (and not -1 like a stream).
+        long count = 0;
+        int read;
+        while (count < length && (read = source.read(buffer, 0, (int) min(buffer.length, length - count))) > 0) {
+            target.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+}
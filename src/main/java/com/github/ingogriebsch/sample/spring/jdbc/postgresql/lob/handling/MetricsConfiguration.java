@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.springframework.beans.factory.config.BeanDefinition.ROLE_INFRASTRUCTURE;
+import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
+
+import lombok.NonNull;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.TomcatDataSourcePoolMetadata;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public DocumentMetrics documentMetrics() {
+        return new DocumentMetrics();
+    }
+
+    // Only advisors with the infrastructure role are applied by the auto proxy creator which is registered for the transaction
+    // management. The advisor is applied first so that the recorded time includes the commit.
+    @Bean
+    @Role(ROLE_INFRASTRUCTURE)
+    public static Advisor timedMethodAdvisor(@NonNull DocumentMetrics documentMetrics) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, Timed.class),
+            new TimedMethodInterceptor(documentMetrics));
+        advisor.setOrder(HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    public TimeToFirstByteFilter timeToFirstByteFilter(@NonNull DocumentMetrics documentMetrics) {
+        return new TimeToFirstByteFilter(documentMetrics, "documents.download.first-byte");
+    }
+
+    // Post processors are created before the configuration properties are bound, so the properties are not looked up before
+    // the data source is post processed.
+    @Bean
+    public static QueryInstrumentation queryInstrumentation(@NonNull ObjectProvider<DocumentProperties> documentProperties) {
+        return new QueryInstrumentation(documentProperties);
+    }
+
+    // The pool metrics (datasource.primary.*) are only available for data sources whose pool is known, which is not the case
+    // for the proxy the data source is wrapped with. Therefore the metadata is resolved through the proxied data source.
+    @Bean
+    public DataSourcePoolMetadataProvider
+        proxyDataSourcePoolMetadataProvider(@NonNull QueryInstrumentation queryInstrumentation) {
+        return dataSource -> {
+            javax.sql.DataSource target = queryInstrumentation.getTargetDataSource(dataSource);
+            return target instanceof DataSource ? new TomcatDataSourcePoolMetadata((DataSource) target) : null;
+        };
+    }
+}
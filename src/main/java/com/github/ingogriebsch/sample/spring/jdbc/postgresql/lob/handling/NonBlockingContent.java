@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A range of the content of a document (as stored) which is transferred with non-blocking I/O, i.e. which is read chunk by
+ * chunk whenever the client is able to receive more of it (see {@link NonBlockingContentReturnValueHandler}).
+ */
+@Value
+public class NonBlockingContent {
+
+    @NonNull
+    Document document;
+
+    long offset;
+
+    long length;
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Handles response entities whose body is a {@link NonBlockingContent} in addition to the ones handled by its super class (only
+ * one handler may be responsible for response entities with an asynchronous body). The content is transferred through the
+ * non-blocking I/O of the servlet container: a chunk of the content is read (through a single statement, i.e. without a
+ * transaction) on one of the download threads and written by the container once the client is able to receive it, while the
+ * next chunk is already read. Neither a thread nor a connection is occupied while waiting for the client, so slow clients only
+ * cost the memory of two chunks.
+ */
+@RequiredArgsConstructor
+public class NonBlockingContentReturnValueHandler extends StreamingResponseEntityReturnValueHandler {
+
+    @NonNull
+    private final DocumentRepository documentRepository;
+
+    @NonNull
+    private final Executor downloadExecutor;
+
+    private final int chunkSize;
+
+    private final long timeoutMillis;
+
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+        return isNonBlockingContent(returnValue) || super.isAsyncReturnValue(returnValue, returnType);
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+        NativeWebRequest webRequest) throws Exception {
+        if (!isNonBlockingContent(returnValue)) {
+            super.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+            return;
+        }
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        ResponseEntity<?> responseEntity = (ResponseEntity<?>) returnValue;
+        response.setStatus(responseEntity.getStatusCodeValue());
+        // Headers which are already set (e.g. the validators set through WebRequest.checkNotModified) are not added again.
+        responseEntity.getHeaders().forEach((name, values) -> {
+            if (!response.containsHeader(name)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        mavContainer.setRequestHandled(true);
+
+        // The asynchronous request does not time out. Completing it before the content is transferred would keep the
+        // connection open until the client gives up, so the transfer is time limited by the writes instead. The request is
+        // processed like one with a deferred result, so that the failures of the transfer are dispatched to the exception
+        // resolvers like the ones of the other asynchronous transfers.
+        DeferredResult<Object> failure = new DeferredResult<>(-1L);
+        WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(failure, mavContainer);
+        AsyncContext asyncContext = request.getAsyncContext();
+        ServletOutputStream output = response.getOutputStream();
+        NonBlockingContent content = (NonBlockingContent) responseEntity.getBody();
+        ContentWriter contentWriter = new ContentWriter(asyncContext, failure, content, output);
+        asyncContext.addListener(contentWriter);
+        output.setWriteListener(contentWriter);
+    }
+
+    private static boolean isNonBlockingContent(Object returnValue) {
+        return returnValue instanceof ResponseEntity && ((ResponseEntity<?>) returnValue).getBody() instanceof NonBlockingContent;
+    }
+
+    // The chunks are written by the container (whenever the client is able to receive more) as well as by the download thread
+    // which read them (if the client was able to receive more while they were read), so the state is guarded by the writer.
+    private class ContentWriter implements WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+
+        private final DeferredResult<Object> failure;
+
+        private final Document document;
+
+        private final ServletOutputStream output;
+
+        private final OutputStream target;
+
+        // The range of the content which is not read yet.
+        private long offset;
+
+        private long remaining;
+
+        // The chunk which is read but not written yet.
+        private byte[] chunk;
+
+        private boolean reading;
+
+        private boolean writing;
+
+        private boolean completed;
+
+        private ContentWriter(AsyncContext asyncContext, DeferredResult<Object> failure, NonBlockingContent content,
+            ServletOutputStream output) {
+            this.asyncContext = asyncContext;
+            this.failure = failure;
+            this.document = content.getDocument();
+            this.output = output;
+            this.target = new TimeLimitedOutputStream(output, timeoutMillis);
+            this.offset = content.getOffset();
+            this.remaining = content.getLength();
+        }
+
+        @Override
+        public void onWritePossible() {
+            write();
+        }
+
+        // The failures of the writer are dispatched by the writer itself, the failures of the connection are followed by
+        // onError(AsyncEvent), on which they are dispatched to the exception resolvers.
+        @Override
+        public synchronized void onError(Throwable t) {
+            completed = true;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            completed = true;
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            completed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        // The loop ends as soon as the client is not able to receive more (the container calls again if it is) or the next chunk
+        // is not read yet (the download thread calls again once it is).
+        private synchronized void write() {
+            // A chunk which is read on the writing thread itself (i.e. if the download threads are saturated) is picked up by
+            // the running loop.
+            if (writing) {
+                return;
+            }
+
+            writing = true;
+            try {
+                while (!completed && output.isReady()) {
+                    if (chunk == null) {
+                        if (remaining == 0 && !reading) {
+                            complete();
+                            return;
+                        }
+                        read();
+                        if (chunk == null) {
+                            return;
+                        }
+                    }
+
+                    byte[] written = chunk;
+                    chunk = null;
+                    read();
+                    target.write(written);
+                }
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                writing = false;
+            }
+        }
+
+        private void read() {
+            if (reading || remaining == 0) {
+                return;
+            }
+
+            long chunkOffset = offset;
+            int chunkLength = (int) min(chunkSize, remaining);
+            offset += chunkLength;
+            remaining -= chunkLength;
+            reading = true;
+            downloadExecutor.execute(() -> read(chunkOffset, chunkLength));
+        }
+
+        // Runs on a download thread, so the failures of the transfer are not noticed by the container.
+        private void read(long chunkOffset, int chunkLength) {
+            try {
+                byte[] content;
+                try {
+                    content = documentRepository.readStoredContent(document, chunkOffset, chunkLength);
+                } catch (DataAccessException e) {
+                    throw new IOException("Could not read the content of document '" + document.getId() + "'!", e);
+                }
+                if (content.length != chunkLength) {
+                    throw new IOException("The content of document '" + document.getId() + "' ended unexpectedly!");
+                }
+
+                synchronized (this) {
+                    reading = false;
+                    chunk = content;
+                    write();
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        // The failure is dispatched to the exception resolvers like the ones of the other asynchronous transfers.
+        private synchronized void fail(Exception e) {
+            if (!completed) {
+                completed = true;
+                failure.setErrorResult(e);
+            }
+        }
+
+        private synchronized void complete() {
+            if (!completed) {
+                completed = true;
+                asyncContext.complete();
+            }
+        }
+    }
+}
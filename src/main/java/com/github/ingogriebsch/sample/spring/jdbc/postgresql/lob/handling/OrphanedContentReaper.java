@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Thread.sleep;
+import static java.util.Arrays.asList;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unlinks large objects which are neither referenced by the content table nor by any document (e.g. because they were left
+ * behind by a deletion which bypassed the application). The large objects are unlinked in batches, each in its own
+ * transaction, with a pause between the batches so that the reaper does not compete with the regular load. The number of
+ * reclaimed large objects and bytes are published through the metrics endpoint.
+ */
+@Component
+@ConditionalOnProperty(prefix = "document", name = "orphaned-content-reaper-enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OrphanedContentReaper implements PublicMetrics {
+
+    private static final String METRIC_PREFIX = "content.orphaned.";
+
+    // Only large objects of the current user are considered. Large objects which are created by a running upload are not visible
+    // until the document referencing them is committed.
+    private static final String SELECT_ORPHANED_CONTENT_OIDS = "SELECT m.oid FROM pg_largeobject_metadata m "
+        + "WHERE m.lomowner = (SELECT r.oid FROM pg_roles r WHERE r.rolname = current_user) "
+        + "AND NOT EXISTS (SELECT 1 FROM content c WHERE c.oid = m.oid) "
+        + "AND NOT EXISTS (SELECT 1 FROM document d WHERE d.content = m.oid) LIMIT ?";
+    // Prevents that the reapers of several application instances compete for the same large objects.
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+    private static final long LOCK_KEY = 0x646f63756d656e74L;
+
+    @NonNull
+    private final JdbcTemplate jdbcTemplate;
+
+    @NonNull
+    private final TransactionTemplate transactionTemplate;
+
+    @NonNull
+    private final LargeObjectContentStorage largeObjectContentStorage;
+
+    @NonNull
+    private final DocumentProperties documentProperties;
+
+    private final AtomicLong reclaimedObjects = new AtomicLong();
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    @Scheduled(initialDelayString = "${document.orphaned-content-reaper-interval-millis:3600000}",
+        fixedDelayString = "${document.orphaned-content-reaper-interval-millis:3600000}")
+    public void reap() throws InterruptedException {
+        int batchSize = documentProperties.getOrphanedContentReaperBatchSize();
+        long objects = reclaimedObjects.get();
+        long bytes = reclaimedBytes.get();
+
+        int unlinked;
+        while ((unlinked = transactionTemplate.execute(status -> reapBatch(batchSize))) == batchSize) {
+            sleep(documentProperties.getOrphanedContentReaperPauseMillis());
+        }
+
+        if (unlinked >= 0 && reclaimedObjects.get() > objects) {
+            log.info("Unlinked {} orphaned large objects ({} bytes).", reclaimedObjects.get() - objects,
+                reclaimedBytes.get() - bytes);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return asList(new Metric<>(METRIC_PREFIX + "reclaimed.objects", reclaimedObjects.get()),
+            new Metric<>(METRIC_PREFIX + "reclaimed.bytes", reclaimedBytes.get()));
+    }
+
+    // Returns the number of unlinked large objects or -1 if another reaper is running at the moment.
+    private int reapBatch(int batchSize) {
+        if (!jdbcTemplate.queryForObject(TRY_LOCK, Boolean.class, LOCK_KEY)) {
+            return -1;
+        }
+
+        List<Long> contentOids = jdbcTemplate.queryForList(SELECT_ORPHANED_CONTENT_OIDS, Long.class, batchSize);
+        long bytes = 0;
+        for (Long contentOid : contentOids) {
+            try {
+                bytes += largeObjectContentStorage.unlink(contentOid);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not unlink large object " + contentOid + "!", e);
+            }
+        }
+
+        reclaimedObjects.addAndGet(contentOids.size());
+        reclaimedBytes.addAndGet(bytes);
+        return contentOids.size();
+    }
+}
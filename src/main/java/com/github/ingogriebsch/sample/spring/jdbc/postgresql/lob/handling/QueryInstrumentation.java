@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel.WARN;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import lombok.NonNull;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.listener.SingleQueryCountHolder;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Wraps the data source through datasource-proxy so that all queries are counted (the counts are published through the metrics
+ * endpoint) and the ones which take longer than the slow query threshold are logged. Large object I/O bypasses the statements
+ * of the driver and is therefore not covered (see the 'content.large-object.*' metrics instead).
+ */
+public class QueryInstrumentation implements BeanPostProcessor, PublicMetrics {
+
+    private static final String DATA_SOURCE_NAME = "documents";
+    private static final String METRIC_PREFIX = "datasource.queries.";
+
+    private final ObjectFactory<DocumentProperties> documentProperties;
+
+    private final SingleQueryCountHolder queryCountHolder = new SingleQueryCountHolder();
+    private final Map<DataSource, DataSource> targetDataSources = new ConcurrentHashMap<>();
+
+    /**
+     * Takes the slow query threshold from the given properties, which are looked up once a data source is wrapped.
+     */
+    public QueryInstrumentation(@NonNull ObjectFactory<DocumentProperties> documentProperties) {
+        this.documentProperties = documentProperties;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+
+        ProxyDataSourceBuilder builder =
+            ProxyDataSourceBuilder.create((DataSource) bean).name(DATA_SOURCE_NAME).countQuery(queryCountHolder);
+        long slowQueryThresholdMillis = documentProperties.getObject().getSlowQueryThresholdMillis();
+        if (slowQueryThresholdMillis > 0) {
+            builder.logSlowQueryBySlf4j(slowQueryThresholdMillis, MILLISECONDS, WARN);
+        }
+
+        DataSource proxy = builder.build();
+        targetDataSources.put(proxy, (DataSource) bean);
+        return proxy;
+    }
+
+    /**
+     * Returns the data source the given proxy was created for or <code>null</code> if the given data source is not a proxy
+     * created by this instance.
+     */
+    public DataSource getTargetDataSource(@NonNull DataSource dataSource) {
+        return targetDataSources.get(dataSource);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        QueryCount queryCount = queryCountHolder.getQueryCountMap().get(DATA_SOURCE_NAME);
+        if (queryCount == null) {
+            return emptyList();
+        }
+        return asList(new Metric<>(METRIC_PREFIX + "total", queryCount.getTotal()),
+            new Metric<>(METRIC_PREFIX + "select", queryCount.getSelect()),
+            new Metric<>(METRIC_PREFIX + "insert", queryCount.getInsert()),
+            new Metric<>(METRIC_PREFIX + "update", queryCount.getUpdate()),
+            new Metric<>(METRIC_PREFIX + "delete", queryCount.getDelete()),
+            new Metric<>(METRIC_PREFIX + "other", queryCount.getOther()),
+            new Metric<>(METRIC_PREFIX + "failure", queryCount.getFailure()),
+            new Metric<>(METRIC_PREFIX + "time.total", queryCount.getTime()));
+    }
+}
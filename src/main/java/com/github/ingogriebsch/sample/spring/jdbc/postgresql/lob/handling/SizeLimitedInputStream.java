@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import lombok.NonNull;
+
+/**
+ * An input stream which fails with a {@link ContentTooLargeException} once more than the given number of bytes are read. Is
+ * used to limit content whose length is not known upfront (or is only declared by the client) while it is stored. The exception
+ * is unchecked so that it rolls back the transaction the content is stored in.
+ */
+public class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long maximumSize;
+
+    private long count;
+
+    public SizeLimitedInputStream(@NonNull InputStream in, long maximumSize) {
+        super(in);
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) {
+        count += n;
+        if (count > maximumSize) {
+            throw new ContentTooLargeException("The content exceeds the maximum size of " + maximumSize + " bytes!");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import lombok.Value;
+
+/**
+ * The result of storing content through a {@link ContentStorage}. Either the oid of the large object or the inline content is
+ * set.
+ */
+@Value
+public class StoredContent {
+
+    Long contentOid;
+
+    byte[] inlineContent;
+
+    long contentLength;
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBodyReturnValueHandler;
+
+/**
+ * Handles response entities whose body is a {@link StreamingResponseBody} even if the declared return type of the handler
+ * method does not tell so (e.g. 'ResponseEntity&lt;?&gt;'). Spring MVC only detects streaming bodies based on the declared
+ * type, which does not allow a handler method to decide per request whether its response is written on the request thread
+ * (through a message converter) or asynchronously.
+ */
+public class StreamingResponseEntityReturnValueHandler implements AsyncHandlerMethodReturnValueHandler {
+
+    private final StreamingResponseBodyReturnValueHandler delegate = new StreamingResponseBodyReturnValueHandler();
+
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+        return returnValue instanceof ResponseEntity
+            && ((ResponseEntity<?>) returnValue).getBody() instanceof StreamingResponseBody;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return ResponseEntity.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+        NativeWebRequest webRequest) throws Exception {
+        // Other than the message converters, the delegate adds the headers of the entity to the response even if they are
+        // already set (e.g. the validators set through WebRequest.checkNotModified).
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        ResponseEntity<?> responseEntity = (ResponseEntity<?>) returnValue;
+        HttpHeaders headers = new HttpHeaders();
+        responseEntity.getHeaders().forEach((name, values) -> {
+            if (!response.containsHeader(name)) {
+                headers.put(name, values);
+            }
+        });
+        delegate.handleReturnValue(new ResponseEntity<>(responseEntity.getBody(), headers, responseEntity.getStatusCode()),
+            returnType, mavContainer, webRequest);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import lombok.NonNull;
+
+/**
+ * An output stream which fails all writes once the given time limit (counted from the creation of the stream) is exceeded. Is
+ * used to abort transfers which take too long from the thread which writes the data, because aborting them from another thread
+ * (e.g. by completing the asynchronous request) would leave the writing thread with a response which may already be reused.
+ */
+public class TimeLimitedOutputStream extends FilterOutputStream {
+
+    private final long timeLimitMillis;
+
+    private final long deadline;
+
+    public TimeLimitedOutputStream(@NonNull OutputStream out, long timeLimitMillis) {
+        super(out);
+        this.timeLimitMillis = timeLimitMillis;
+        this.deadline = nanoTime() + MILLISECONDS.toNanos(timeLimitMillis);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkDeadline();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkDeadline();
+        out.write(b, off, len);
+    }
+
+    private void checkDeadline() throws IOException {
+        if (nanoTime() - deadline > 0) {
+            throw new IOException("Transfer exceeded the time limit of " + timeLimitMillis + " ms!");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.nanoTime;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Records the time to first byte of downloads, i.e. the time from receiving the request until the first byte of the content is
+ * written to the response. It covers everything which happens before the content flows (like looking up the document, opening
+ * a transaction and opening the large object). Responses without content (like 304 Not Modified) are not recorded.
+ */
+@RequiredArgsConstructor
+public class TimeToFirstByteFilter extends OncePerRequestFilter {
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @NonNull
+    private final DocumentMetrics documentMetrics;
+
+    @NonNull
+    private final String metricName;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+            || !PATH_MATCHER.match(DocumentController.PATH_DOWNLOAD, request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        long start = nanoTime();
+        filterChain.doFilter(request, new HttpServletResponseWrapper(response) {
+
+            private ServletOutputStream outputStream;
+
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                if (outputStream == null) {
+                    outputStream = new FirstByteRecordingOutputStream(super.getOutputStream(), start);
+                }
+                return outputStream;
+            }
+        });
+    }
+
+    @RequiredArgsConstructor
+    private class FirstByteRecordingOutputStream extends ServletOutputStream {
+
+        @NonNull
+        private final ServletOutputStream delegate;
+
+        private final long start;
+
+        private boolean recorded;
+
+        @Override
+        public void write(int b) throws IOException {
+            record();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                record();
+            }
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                documentMetrics.recordTime(metricName, nanoTime() - start, false);
+            }
+        }
+    }
+}
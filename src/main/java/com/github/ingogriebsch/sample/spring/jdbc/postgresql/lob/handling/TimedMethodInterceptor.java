@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.nanoTime;
+
+import static org.springframework.aop.support.AopUtils.getMostSpecificMethod;
+import static org.springframework.core.annotation.AnnotationUtils.findAnnotation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Records the invocations of methods which are annotated with {@link Timed} (including the ones which fail) with their
+ * duration.
+ */
+@RequiredArgsConstructor
+public class TimedMethodInterceptor implements MethodInterceptor {
+
+    @NonNull
+    private final DocumentMetrics documentMetrics;
+
+    private final ConcurrentMap<Method, String> metricNames = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String metricName = metricNames.computeIfAbsent(invocation.getMethod(), method -> metricName(method, invocation));
+        long start = nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            documentMetrics.recordTime(metricName, nanoTime() - start, failed);
+        }
+    }
+
+    private static String metricName(Method method, MethodInvocation invocation) {
+        Class<?> targetClass = invocation.getThis() != null ? invocation.getThis().getClass() : method.getDeclaringClass();
+        Timed timed = findAnnotation(getMostSpecificMethod(method, targetClass), Timed.class);
+        if (timed == null) {
+            throw new IllegalStateException("Method " + method + " is not annotated with @" + Timed.class.getSimpleName() + "!");
+        }
+        return timed.value();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * A resumable upload whose content is transferred in numbered chunks (possibly in parallel and more than once) before it is
+ * committed into a document.
+ */
+@Value
+public class UploadSession {
+
+    String id;
+
+    String filename;
+
+    String contentType;
+
+    /**
+     * The length of the whole content as announced by the client, or null if it was not announced.
+     */
+    Long contentLength;
+
+    /**
+     * The chunks which were received so far, ordered by their index.
+     */
+    List<UploadChunk> chunks;
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyList;
+import static java.util.UUID.randomUUID;
+
+import static com.google.common.collect.Iterators.asEnumeration;
+import static com.google.common.collect.Iterators.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.sql.Timestamp;
+import java.util.List;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stages the chunks of resumable uploads (see {@link UploadSession}) in the database until they are committed into a document.
+ * Each chunk is stored in its own transaction, so chunks can be transferred in parallel and a failed transfer only needs to
+ * repeat the affected chunk.
+ */
+@RequiredArgsConstructor
+@Repository
+public class UploadSessionRepository {
+
+    private static final String INSERT_SESSION =
+        "INSERT INTO upload_session (id, content_length, content_type, created, filename) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SESSION =
+        "SELECT id, content_length, content_type, filename FROM upload_session WHERE id = ?";
+    private static final String SELECT_SESSION_FOR_UPDATE = SELECT_SESSION + " FOR UPDATE";
+    // The length of a chunk is known without reading its (uncompressed) content.
+    private static final String SELECT_CHUNKS =
+        "SELECT index, octet_length(content) AS length FROM upload_chunk WHERE session_id = ? ORDER BY index";
+    // The chunk which is about to be replaced does not count.
+    private static final String SELECT_STAGED_LENGTH =
+        "SELECT coalesce(sum(octet_length(content)), 0) FROM upload_chunk WHERE session_id = ? AND index <> ?";
+    private static final String SELECT_CHUNK_CONTENT = "SELECT content FROM upload_chunk WHERE session_id = ? AND index = ?";
+    // A chunk which is transferred again replaces the one received before.
+    private static final String UPSERT_CHUNK = "INSERT INTO upload_chunk (session_id, index, content) "
+        + "SELECT id, ?, ? FROM upload_session WHERE id = ? "
+        + "ON CONFLICT (session_id, index) DO UPDATE SET content = EXCLUDED.content";
+    private static final String DELETE_SESSION = "DELETE FROM upload_session WHERE id = ?";
+    private static final String DELETE_SESSIONS_CREATED_BEFORE = "DELETE FROM upload_session WHERE created < ?";
+
+    private static final RowMapper<UploadChunk> CHUNK_ROW_MAPPER =
+        (rs, rowNum) -> new UploadChunk(rs.getInt("index"), rs.getLong("length"));
+
+    @NonNull
+    private final JdbcTemplate jdbcTemplate;
+
+    @NonNull
+    private final DocumentRepository documentRepository;
+
+    @NonNull
+    private final DocumentProperties documentProperties;
+
+    /**
+     * Creates a session for the upload of the content of a document with the given filename and content type. The length of the
+     * content is optional, if it is given the session can only be committed once the received chunks add up to it.
+     */
+    @Timed("upload-sessions.repository.create")
+    public UploadSession create(@NonNull String filename, @NonNull String contentType, Long contentLength) {
+        String id = randomUUID().toString();
+        jdbcTemplate.update(INSERT_SESSION, id, contentLength, contentType, new Timestamp(currentTimeMillis()), filename);
+        return new UploadSession(id, filename, contentType, contentLength, emptyList());
+    }
+
+    /**
+     * Returns the session with the given id together with the chunks received so far, or null if the session does not exist
+     * (anymore).
+     */
+    @Timed("upload-sessions.repository.find-one")
+    @Transactional(readOnly = true)
+    public UploadSession findOne(@NonNull String id) {
+        return findOne(SELECT_SESSION, id);
+    }
+
+    /**
+     * Stores the given number of bytes of the given source as the chunk with the given index of the given session. The chunk is
+     * streamed into the database, so it is never held in memory as a whole. A chunk which was already received is replaced.
+     * 
+     * @return whether the chunk was stored, i.e. false if the session does not exist (anymore).
+     * @throws ContentTooLargeException if the chunk together with the other chunks staged so far exceeds the maximum size of a
+     *         session (see 'document.upload-session-max-size'). Chunks which are stored in parallel do not see each other, so
+     *         they may exceed it nevertheless, which is caught once the session is committed.
+     */
+    @Timed("upload-sessions.repository.save-chunk")
+    public boolean saveChunk(@NonNull String id, int index, @NonNull InputStream source, long length) {
+        if (index < 0) {
+            throw new IllegalArgumentException("The index of a chunk must not be negative!");
+        }
+        long maxSize = documentProperties.getUploadSessionMaxSize();
+        if (maxSize >= 0 && jdbcTemplate.queryForObject(SELECT_STAGED_LENGTH, Long.class, id, index) + length > maxSize) {
+            throw tooLarge(id, maxSize);
+        }
+
+        try {
+            return jdbcTemplate.update(UPSERT_CHUNK, ps -> {
+                ps.setInt(1, index);
+                ps.setBinaryStream(2, source, length);
+                ps.setString(3, id);
+            }) > 0;
+        } catch (DataIntegrityViolationException e) {
+            // The session was committed or deleted while the chunk was transferred.
+            return false;
+        }
+    }
+
+    /**
+     * Stores the content of the given session (i.e. the concatenation of its chunks) as content of a new document and deletes
+     * the session. Both happens in one transaction, so either the document is stored and the session is gone or the session is
+     * left as it is. The chunks are read one by one while the content is stored (see
+     * {@link DocumentRepository#save(Document, InputStream)}).
+     * 
+     * @return the stored document, or null if the session does not exist (anymore).
+     * @throws IllegalStateException if the chunks do not form the whole content, i.e. if a chunk is missing or if they do not
+     *         add up to the announced length.
+     * @throws ContentTooLargeException if the chunks exceed the maximum size of a session (see
+     *         'document.upload-session-max-size').
+     */
+    @Timed("upload-sessions.repository.commit")
+    @Transactional
+    public Document commit(@NonNull String id) throws Exception {
+        // Locks the session, so that it is committed once at most and no chunk is replaced while the content is stored.
+        UploadSession session = findOne(SELECT_SESSION_FOR_UPDATE, id);
+        if (session == null) {
+            return null;
+        }
+
+        List<UploadChunk> chunks = session.getChunks();
+        long contentLength = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            if (chunks.get(i).getIndex() != i) {
+                throw new IllegalStateException("Chunk " + i + " of upload session '" + id + "' is missing!");
+            }
+            contentLength += chunks.get(i).getLength();
+        }
+        if (session.getContentLength() != null && session.getContentLength() != contentLength) {
+            throw new IllegalStateException("The chunks of upload session '" + id + "' add up to " + contentLength
+                + " bytes instead of the announced " + session.getContentLength() + " bytes!");
+        }
+        long maxSize = documentProperties.getUploadSessionMaxSize();
+        if (maxSize >= 0 && contentLength > maxSize) {
+            throw tooLarge(id, maxSize);
+        }
+
+        Document template = new Document(randomUUID().toString(), session.getFilename(), session.getContentType(), contentLength);
+        Document document;
+        try (InputStream content = new SequenceInputStream(asEnumeration(transform(chunks.iterator(),
+            chunk -> new ByteArrayInputStream(readChunk(id, chunk.getIndex())))))) {
+            document = documentRepository.save(template, content);
+        }
+        jdbcTemplate.update(DELETE_SESSION, id);
+        return document;
+    }
+
+    /**
+     * Deletes the given session together with its chunks.
+     * 
+     * @return whether the session existed.
+     */
+    @Timed("upload-sessions.repository.delete")
+    public boolean delete(@NonNull String id) {
+        return jdbcTemplate.update(DELETE_SESSION, id) > 0;
+    }
+
+    /**
+     * Deletes the sessions (together with their chunks) which were created before the given point in time (in milliseconds since
+     * the epoch).
+     * 
+     * @return the number of deleted sessions.
+     */
+    @Timed("upload-sessions.repository.delete-created-before")
+    public int deleteCreatedBefore(long created) {
+        return jdbcTemplate.update(DELETE_SESSIONS_CREATED_BEFORE, new Timestamp(created));
+    }
+
+    private UploadSession findOne(String sql, String id) {
+        List<UploadSession> sessions = jdbcTemplate.query(sql,
+            (rs, rowNum) -> new UploadSession(rs.getString("id"), rs.getString("filename"), rs.getString("content_type"),
+                rs.getObject("content_length") != null ? rs.getLong("content_length") : null,
+                jdbcTemplate.query(SELECT_CHUNKS, CHUNK_ROW_MAPPER, id)),
+            id);
+        return sessions.isEmpty() ? null : sessions.get(0);
+    }
+
+    private static ContentTooLargeException tooLarge(String id, long maxSize) {
+        return new ContentTooLargeException(
+            "The chunks of upload session '" + id + "' exceed the maximum size of " + maxSize + " bytes!");
+    }
+
+    // A chunk is held in memory while it is read, so its size is limited (see 'document.upload-chunk-maximum-size').
+    private byte[] readChunk(String id, int index) {
+        return jdbcTemplate.queryForObject(SELECT_CHUNK_CONTENT, byte[].class, id, index);
+    }
+}
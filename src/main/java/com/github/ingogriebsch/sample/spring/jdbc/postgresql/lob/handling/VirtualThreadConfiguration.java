@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.min;
+
+import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Processes the requests on virtual threads if enabled (see {@link DocumentProperties#isVirtualThreadsEnabled()}) and supported
+ * by the runtime. The asynchronous downloads are covered by {@link WebMvcConfiguration#downloadTaskExecutor(DocumentProperties)}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "document", name = "virtual-threads-enabled")
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    // The connector hands each request to a virtual thread of its own instead of one of its request threads. The number of
+    // concurrent requests is still bounded by the maximum number of connections of the connector.
+    @Bean
+    public EmbeddedServletContainerCustomizer virtualThreadContainerCustomizer() {
+        return container -> {
+            if (!VirtualThreads.isSupported()) {
+                log.warn("Virtual threads are not supported by Java {}, requests are processed on platform threads!",
+                    System.getProperty("java.version"));
+                return;
+            }
+            if (container instanceof TomcatEmbeddedServletContainerFactory) {
+                ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+                    ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                    if (protocolHandler instanceof AbstractProtocol) {
+                        ((AbstractProtocol<?>) protocolHandler).setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-"));
+                    }
+                });
+            }
+        };
+    }
+
+    // Post processors are created before the configuration properties are bound, so the properties are not looked up before
+    // the connection pool is post processed.
+    @Bean
+    public static BeanPostProcessor virtualThreadConnectionPoolCustomizer(
+        @NonNull ObjectProvider<DocumentProperties> documentProperties) {
+        return new ConnectionPoolCustomizer(documentProperties);
+    }
+
+    /**
+     * Adjusts the connection pool to the number of threads which may wait for a connection at the same time, which is no
+     * longer bounded by the number of request threads. The connections are handed to the waiting threads in the order they
+     * asked for them, so none of them starves, and the threads wait as long as configured. Is applied before the data source
+     * is wrapped (see {@link QueryInstrumentation}).
+     */
+    @RequiredArgsConstructor
+    static class ConnectionPoolCustomizer implements BeanPostProcessor, Ordered {
+
+        private final ObjectFactory<DocumentProperties> documentProperties;
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof PoolConfiguration && VirtualThreads.isSupported()) {
+                PoolConfiguration poolConfiguration = (PoolConfiguration) bean;
+                poolConfiguration.setFairQueue(true);
+                poolConfiguration.setMaxWait(
+                    (int) min(documentProperties.getObject().getVirtualThreadsConnectionWaitMillis(), Integer.MAX_VALUE));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Ingo Griebsch
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Creates executors which run each task on a virtual thread of its own. Virtual threads are only available on Java 21 or later
+ * while the application is compiled for Java 8, therefore they are accessed through reflection.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+
+    /**
+     * Returns whether the runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns an executor which starts a new virtual thread for each task. The threads are named with the given prefix followed
+     * by a counter.
+     *
+     * @throws IllegalStateException if the runtime does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(@NonNull String threadNamePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException(
+                "Virtual threads are not supported by Java " + System.getProperty("java.version") + "!");
+        }
+
+        try {
+            // Thread.ofVirtual().name(threadNamePrefix, 0).factory()
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            // Executors.newThreadPerTaskExecutor(threadFactory)
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null,
+                threadFactory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create an executor for virtual threads!", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -1,8 +1,26 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.LARGE_TRANSFER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.METADATA;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.SMALL_TRANSFER;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.NonNull;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 @Configuration
 public class WebMvcConfiguration {
@@ -13,4 +31,71 @@ public class WebMvcConfiguration {
         return new DocumentResourceHttpMessageConverter(documentRepository);
     }
 
+    @Bean
+    public DocumentStreamResourceHttpMessageConverter documentStreamResourceHttpMessageConverter(
+        @NonNull DocumentRepository documentRepository, @NonNull ObjectMapper objectMapper) {
+        return new DocumentStreamResourceHttpMessageConverter(documentRepository, objectMapper);
+    }
+
+    @Bean
+    public AdmissionControl admissionControl(@NonNull DocumentProperties documentProperties) {
+        Map<AdmissionControl.Budget, Integer> limits = new EnumMap<>(AdmissionControl.Budget.class);
+        limits.put(METADATA, documentProperties.getMetadataConcurrencyLimit());
+        limits.put(SMALL_TRANSFER, documentProperties.getSmallTransferConcurrencyLimit());
+        limits.put(LARGE_TRANSFER, documentProperties.getLargeTransferConcurrencyLimit());
+        return new AdmissionControl(limits, documentProperties.getAdmissionWaitMillis(),
+            documentProperties.getAdmissionRetryAfterSeconds());
+    }
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(@NonNull AdmissionControl admissionControl) {
+        return new AdmissionControlFilter(admissionControl);
+    }
+
+    @Bean
+    public AsyncTaskExecutor downloadTaskExecutor(@NonNull DocumentProperties documentProperties) {
+        // Each download gets a virtual thread of its own, i.e. the number of concurrent downloads is only bounded by the
+        // connections (see VirtualThreadConfiguration).
+        if (documentProperties.isVirtualThreadsEnabled() && VirtualThreads.isSupported()) {
+            return new ConcurrentTaskExecutor(VirtualThreads.newThreadPerTaskExecutor("download-"));
+        }
+
+        ThreadPoolTaskExecutor downloadTaskExecutor = new ThreadPoolTaskExecutor();
+        downloadTaskExecutor.setThreadNamePrefix("download-");
+        downloadTaskExecutor.setCorePoolSize(documentProperties.getDownloadThreads());
+        downloadTaskExecutor.setMaxPoolSize(documentProperties.getDownloadThreads());
+        downloadTaskExecutor.setQueueCapacity(documentProperties.getDownloadQueueCapacity());
+        // Rejecting a task would break the response (Spring MVC has already started the asynchronous processing at this point).
+        // Transferring the content on the request thread instead throttles the server if it is overloaded by downloads.
+        downloadTaskExecutor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        return downloadTaskExecutor;
+    }
+
+    // The asynchronous requests (which are only used to transfer content) are processed by the download threads. They do not
+    // time out because the transfers are time limited by the download threads themselves (see DocumentController). The content
+    // of non-blocking downloads is read on the download threads as well, in chunks of the size the content is transferred with
+    // anyway.
+    @Bean
+    public WebMvcConfigurer asyncDownloadConfigurer(@NonNull AsyncTaskExecutor downloadTaskExecutor,
+        @NonNull DocumentRepository documentRepository, @NonNull DocumentProperties documentProperties) {
+        return new WebMvcConfigurerAdapter() {
+
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(downloadTaskExecutor);
+                configurer.setDefaultTimeout(-1);
+            }
+
+            @Override
+            public void addReturnValueHandlers(List<HandlerMethodReturnValueHandler> returnValueHandlers) {
+                returnValueHandlers.add(new NonBlockingContentReturnValueHandler(documentRepository, downloadTaskExecutor,
+                    documentProperties.getContentChunkSize(), documentProperties.getDownloadTimeoutMillis()));
+            }
+
+            @Override
+            public void extendHandlerExceptionResolvers(List<HandlerExceptionResolver> exceptionResolvers) {
+                exceptionResolvers.add(0, new AsyncTransferFailureExceptionResolver());
+            }
+        };
+    }
 }
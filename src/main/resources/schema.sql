@@ -1,7 +1,40 @@
+-- Large objects are shared by all documents with the same content (identified by its digest and the encoding it is stored with).
+CREATE TABLE IF NOT EXISTS content (
+    digest varchar(64) NOT NULL, 
+    encoding varchar(16) NOT NULL, 
+    oid oid NOT NULL, 
+    reference_count int8 NOT NULL, 
+UNIQUE (oid),
+PRIMARY KEY (digest, encoding));
+
 CREATE TABLE IF NOT EXISTS document (
     id varchar(255) NOT NULL, 
-    content oid NOT NULL, 
+    content oid, 
+    content_digest varchar(64) NOT NULL, 
+    content_encoding varchar(16), 
     content_length int8 NOT NULL, 
     content_type varchar(255) NOT NULL, 
+    encoded_content_length int8, 
     filename varchar(255) NOT NULL, 
+    inline_content bytea, 
+    last_modified timestamp NOT NULL, 
+CHECK ((content IS NULL) <> (inline_content IS NULL)),
 PRIMARY KEY (id));
+
+-- The chunks of a resumable upload are staged until the upload is committed into a document (or the session expires).
+CREATE TABLE IF NOT EXISTS upload_session (
+    id varchar(255) NOT NULL, 
+    content_length int8, 
+    content_type varchar(255) NOT NULL, 
+    created timestamp NOT NULL, 
+    filename varchar(255) NOT NULL, 
+PRIMARY KEY (id));
+
+CREATE TABLE IF NOT EXISTS upload_chunk (
+    session_id varchar(255) NOT NULL REFERENCES upload_session (id) ON DELETE CASCADE, 
+    index int4 NOT NULL, 
+    content bytea NOT NULL, 
+PRIMARY KEY (session_id, index));
+
+-- The chunks are compressed (if at all) once they are committed, so they are stored out of line without being compressed.
+ALTER TABLE upload_chunk ALTER COLUMN content SET STORAGE EXTERNAL;
@@ -0,0 +1,61 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Collections.singletonMap;
+
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.LARGE_TRANSFER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.servlet.FilterChain;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class AdmissionControlFilterTest {
+
+    private final AdmissionControl admissionControl = new AdmissionControl(singletonMap(LARGE_TRANSFER, 1), 0, 1);
+
+    @After
+    public void after() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void ctor_should_throw_exception_if_input_is_null() {
+        new AdmissionControlFilter(null);
+    }
+
+    @Test
+    public void doFilter_should_release_permits_once_request_is_processed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        new AdmissionControlFilter(admissionControl).doFilter(request, new MockHttpServletResponse(), admit(false));
+
+        assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+    }
+
+    @Test
+    public void doFilter_should_release_permits_once_asynchronous_processing_is_completed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        new AdmissionControlFilter(admissionControl).doFilter(request, new MockHttpServletResponse(), admit(true));
+        assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(0);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+    }
+
+    // Admits the request like the controller does (and starts the asynchronous processing if requested).
+    private FilterChain admit(boolean async) {
+        return (request, response) -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes((MockHttpServletRequest) request));
+            admissionControl.admit(LARGE_TRANSFER);
+            if (async) {
+                request.startAsync();
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.LARGE_TRANSFER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.METADATA;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.SMALL_TRANSFER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class AdmissionControlTest {
+
+    private MockHttpServletRequest request;
+
+    @Before
+    public void before() {
+        request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void after() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void ctor_should_throw_exception_if_input_is_null() {
+        new AdmissionControl(null, 0, 1);
+    }
+
+    @Test
+    public void admit_should_take_permit_of_given_budget_only() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(2, 2, 2), 0, 1);
+        admissionControl.admit(LARGE_TRANSFER);
+
+        assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+        assertThat(admissionControl.getAvailablePermits(METADATA)).isEqualTo(2);
+        assertThat(admissionControl.getAvailablePermits(SMALL_TRANSFER)).isEqualTo(2);
+    }
+
+    @Test
+    public void admit_should_throw_exception_if_budget_is_exhausted() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(1, 1, 1), 10, 5);
+        admissionControl.admit(LARGE_TRANSFER);
+
+        try {
+            admissionControl.admit(LARGE_TRANSFER);
+            fail("The request should not have been admitted!");
+        } catch (AdmissionRejectedException e) {
+            assertThat(e.getRetryAfterSeconds()).isEqualTo(5);
+        }
+        admissionControl.admit(METADATA);
+    }
+
+    @Test
+    public void admit_should_admit_all_requests_if_budget_is_not_limited() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(-1, 1, 1), 0, 1);
+        for (int i = 0; i < 10; i++) {
+            admissionControl.admit(METADATA);
+        }
+        assertThat(admissionControl.getAvailablePermits(METADATA)).isEqualTo(-1);
+    }
+
+    @Test
+    public void admit_should_not_take_permit_if_no_request_is_bound() {
+        RequestContextHolder.resetRequestAttributes();
+        AdmissionControl admissionControl = new AdmissionControl(limits(1, 1, 1), 0, 1);
+
+        try {
+            admissionControl.admit(LARGE_TRANSFER);
+            fail("The request should not have been admitted!");
+        } catch (IllegalStateException e) {
+            assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void admit_should_return_permit_if_it_cannot_be_recorded() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(1, 1, 1), 0, 1);
+        ServletRequestAttributes requestAttributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        requestAttributes.requestCompleted();
+
+        try {
+            admissionControl.admit(LARGE_TRANSFER);
+            fail("The request should not have been admitted!");
+        } catch (IllegalStateException e) {
+            assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void release_should_return_permits_of_request_once() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(1, 1, 1), 0, 1);
+        admissionControl.admit(METADATA);
+        admissionControl.admit(LARGE_TRANSFER);
+
+        admissionControl.release(request);
+        admissionControl.release(request);
+        assertThat(admissionControl.getAvailablePermits(METADATA)).isEqualTo(1);
+        assertThat(admissionControl.getAvailablePermits(LARGE_TRANSFER)).isEqualTo(1);
+    }
+
+    @Test
+    public void release_should_ignore_request_which_was_not_admitted() {
+        AdmissionControl admissionControl = new AdmissionControl(limits(1, 1, 1), 0, 1);
+        admissionControl.release(new MockHttpServletRequest());
+        assertThat(admissionControl.getAvailablePermits(METADATA)).isEqualTo(1);
+    }
+
+    private static Map<AdmissionControl.Budget, Integer> limits(int metadata, int smallTransfer, int largeTransfer) {
+        Map<AdmissionControl.Budget, Integer> limits = new EnumMap<>(AdmissionControl.Budget.class);
+        limits.put(METADATA, metadata);
+        limits.put(SMALL_TRANSFER, smallTransfer);
+        limits.put(LARGE_TRANSFER, largeTransfer);
+        return limits;
+    }
+}
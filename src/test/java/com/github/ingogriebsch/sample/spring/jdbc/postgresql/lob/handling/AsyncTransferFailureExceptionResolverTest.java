@@ -0,0 +1,51 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static javax.servlet.DispatcherType.ASYNC;
+import static javax.servlet.DispatcherType.REQUEST;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AsyncTransferFailureExceptionResolverTest {
+
+    private final AsyncTransferFailureExceptionResolver resolver = new AsyncTransferFailureExceptionResolver();
+
+    @Test
+    public void resolveException_should_resolve_io_exception_of_committed_asynchronous_response() {
+        assertThat(resolver.resolveException(request(ASYNC), response(true), null, new IOException())).isNotNull();
+    }
+
+    @Test
+    public void resolveException_should_not_resolve_io_exception_of_uncommitted_response() {
+        assertThat(resolver.resolveException(request(ASYNC), response(false), null, new IOException())).isNull();
+    }
+
+    @Test
+    public void resolveException_should_not_resolve_io_exception_of_synchronous_response() {
+        assertThat(resolver.resolveException(request(REQUEST), response(true), null, new IOException())).isNull();
+    }
+
+    @Test
+    public void resolveException_should_not_resolve_other_exceptions() {
+        assertThat(resolver.resolveException(request(ASYNC), response(true), null, new IllegalStateException())).isNull();
+    }
+
+    private static MockHttpServletRequest request(DispatcherType dispatcherType) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setDispatcherType(dispatcherType);
+        return request;
+    }
+
+    private static MockHttpServletResponse response(boolean committed) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCommitted(committed);
+        return response;
+    }
+}
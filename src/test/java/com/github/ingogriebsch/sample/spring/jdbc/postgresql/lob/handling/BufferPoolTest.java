@@ -0,0 +1,46 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ctor_should_throw_exception_if_buffer_size_is_not_positive() {
+        new BufferPool(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ctor_should_throw_exception_if_capacity_is_not_positive() {
+        new BufferPool(1, 0);
+    }
+
+    @Test
+    public void acquire_should_return_buffer_of_matching_size() {
+        assertThat(new BufferPool(16, 1).acquire()).hasSize(16);
+    }
+
+    @Test
+    public void acquire_should_return_released_buffer() {
+        BufferPool bufferPool = new BufferPool(16, 1);
+        byte[] buffer = bufferPool.acquire();
+        bufferPool.release(buffer);
+        assertThat(bufferPool.acquire()).isSameAs(buffer);
+    }
+
+    @Test
+    public void release_should_drop_buffer_if_pool_is_full() {
+        BufferPool bufferPool = new BufferPool(16, 1);
+        bufferPool.release(new byte[16]);
+        bufferPool.release(new byte[16]);
+        assertThat(bufferPool.available()).isEqualTo(1);
+    }
+
+    @Test
+    public void release_should_drop_buffer_of_unmatching_size() {
+        BufferPool bufferPool = new BufferPool(16, 1);
+        bufferPool.release(new byte[8]);
+        assertThat(bufferPool.available()).isEqualTo(0);
+    }
+}
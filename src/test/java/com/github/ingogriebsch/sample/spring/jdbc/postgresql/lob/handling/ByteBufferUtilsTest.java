@@ -0,0 +1,33 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.nio.ByteBuffer.allocateDirect;
+
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ByteBufferUtilsTest {
+
+    @Test(expected = NullPointerException.class)
+    public void copy_should_throw_exception_if_input_is_null() throws Exception {
+        ByteBufferUtils.copy(null, null, null);
+    }
+
+    @Test
+    public void copy_should_copy_remaining_bytes_of_direct_buffer() throws Exception {
+        byte[] content = nextBytes(100);
+        ByteBuffer source = allocateDirect(content.length);
+        source.put(content).flip();
+        source.position(10);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(ByteBufferUtils.copy(source, target, new byte[16])).isEqualTo(90);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 100));
+        assertThat(source.hasRemaining()).isFalse();
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ContentCompressionPolicyTest {
+
+    private static final GzipContentCodec CODEC = new GzipContentCodec();
+
+    @Test
+    public void getCodec_should_return_codec_if_content_type_is_included() {
+        ContentCompressionPolicy policy =
+            new ContentCompressionPolicy(singletonList(CODEC), "gzip", asList("text/*", "application/json"));
+        assertThat(policy.getCodec("text/plain")).isSameAs(CODEC);
+        assertThat(policy.getCodec("text/html; charset=UTF-8")).isSameAs(CODEC);
+        assertThat(policy.getCodec("application/json")).isSameAs(CODEC);
+    }
+
+    @Test
+    public void getCodec_should_return_null_if_content_type_is_not_included() {
+        ContentCompressionPolicy policy = new ContentCompressionPolicy(singletonList(CODEC), "gzip", singletonList("text/*"));
+        assertThat(policy.getCodec("image/png")).isNull();
+        assertThat(policy.getCodec("invalid")).isNull();
+        assertThat(policy.getCodec(null)).isNull();
+    }
+
+    @Test
+    public void getCodec_should_return_null_if_compression_is_disabled() {
+        ContentCompressionPolicy policy = new ContentCompressionPolicy(singletonList(CODEC), "", singletonList("text/*"));
+        assertThat(policy.getCodec("text/plain")).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_exception_if_encoding_is_unknown() {
+        new ContentCompressionPolicy(singletonList(CODEC), "br", singletonList("text/*"));
+    }
+
+    @Test
+    public void getCodecForEncoding_should_return_codec() {
+        ContentCompressionPolicy policy = new ContentCompressionPolicy(singletonList(CODEC), null, singletonList("text/*"));
+        assertThat(policy.getCodecForEncoding("gzip")).isSameAs(CODEC);
+    }
+}
@@ -27,4 +27,19 @@ public class ContentDispositionUtilsTest {
         String filename = "test.txt";
         assertThat(ContentDispositionUtils.inline(filename)).contains(filename);
     }
+
+    @Test
+    public void filename_should_return_quoted_filename() {
+        assertThat(ContentDispositionUtils.filename("attachment; filename=\"my \\\"test\\\".txt\"")).isEqualTo("my \"test\".txt");
+    }
+
+    @Test
+    public void filename_should_return_token_filename() {
+        assertThat(ContentDispositionUtils.filename("attachment; filename=test.txt; size=10")).isEqualTo("test.txt");
+    }
+
+    @Test
+    public void filename_should_return_null_if_there_is_no_filename() {
+        assertThat(ContentDispositionUtils.filename("attachment")).isNull();
+    }
 }
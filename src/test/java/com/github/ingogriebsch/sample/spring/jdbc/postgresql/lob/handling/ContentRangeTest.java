@@ -0,0 +1,45 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpRange.parseRanges;
+
+import org.junit.Test;
+
+public class ContentRangeTest {
+
+    @Test
+    public void getLength_should_include_start_and_end() {
+        assertThat(new ContentRange(10, 19).getLength()).isEqualTo(10);
+    }
+
+    @Test
+    public void toContentRangeHeader_should_return_matching_header_value() {
+        assertThat(new ContentRange(10, 19).toContentRangeHeader(100)).isEqualTo("bytes 10-19/100");
+    }
+
+    @Test
+    public void toUnsatisfiedContentRangeHeader_should_return_matching_header_value() {
+        assertThat(ContentRange.toUnsatisfiedContentRangeHeader(100)).isEqualTo("bytes */100");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void resolve_should_throw_exception_if_input_is_null() {
+        ContentRange.resolve(null, 100);
+    }
+
+    @Test
+    public void resolve_should_resolve_ranges_against_content_length() {
+        assertThat(ContentRange.resolve(parseRanges("bytes=0-9,90-,-5,50-500"), 100)).containsExactly(new ContentRange(0, 9),
+            new ContentRange(90, 99), new ContentRange(95, 99), new ContentRange(50, 99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resolve_should_throw_exception_if_range_starts_behind_content() {
+        ContentRange.resolve(parseRanges("bytes=100-"), 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resolve_should_throw_exception_if_content_is_empty() {
+        ContentRange.resolve(parseRanges("bytes=-5"), 0);
+    }
+}
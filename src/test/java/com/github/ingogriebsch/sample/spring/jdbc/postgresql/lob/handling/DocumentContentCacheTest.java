@@ -0,0 +1,145 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+public class DocumentContentCacheTest {
+
+    @Test
+    public void isCacheable_should_return_true_if_content_does_not_exceed_entry_ceiling() {
+        assertThat(new DocumentContentCache(1024, 100, 16).isCacheable(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L)))
+            .isTrue();
+    }
+
+    @Test
+    public void isCacheable_should_return_false_if_content_exceeds_entry_ceiling() {
+        assertThat(new DocumentContentCache(1024, 100, 16).isCacheable(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 101L)))
+            .isFalse();
+    }
+
+    @Test
+    public void isCacheable_should_return_false_if_content_exceeds_cache() {
+        assertThat(new DocumentContentCache(64, 100, 16).isCacheable(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 65L)))
+            .isFalse();
+    }
+
+    @Test
+    public void isCacheable_should_return_false_if_cache_is_disabled() {
+        assertThat(new DocumentContentCache(0, 100, 16).isCacheable(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 0L)))
+            .isFalse();
+    }
+
+    @Test
+    public void get_should_return_null_if_content_is_not_cached() {
+        assertThat(new DocumentContentCache(1024, 100, 16).get("1")).isNull();
+    }
+
+    @Test
+    public void get_should_return_cached_content() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(1024, 100, 16);
+        byte[] content = nextBytes(50);
+        put(cache, "1", content);
+
+        CachedContent cachedContent = cache.get("1");
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(cachedContent.copy(target, 0, 50, new byte[7])).isEqualTo(50);
+        assertThat(target.toByteArray()).isEqualTo(content);
+
+        target.reset();
+        assertThat(cachedContent.copy(target, 10, 30, new byte[7])).isEqualTo(30);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 40));
+        cachedContent.release();
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void allocate_should_return_content_which_cannot_be_written_beyond_its_length() throws Exception {
+        CachedContent cachedContent = new DocumentContentCache(1024, 100, 16).allocate(20);
+        cachedContent.asOutputStream().write(new byte[21]);
+    }
+
+    @Test
+    public void allocate_should_return_null_if_content_exceeds_entry_ceiling() {
+        assertThat(new DocumentContentCache(1024, 100, 16).allocate(101)).isNull();
+    }
+
+    @Test
+    public void allocate_should_evict_least_recently_used_entries_if_byte_budget_is_exceeded() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(160, 100, 16);
+        put(cache, "1", nextBytes(64));
+        put(cache, "2", nextBytes(64));
+        cache.get("1").release();
+        put(cache, "3", nextBytes(64));
+
+        assertThat(cache.get("2")).isNull();
+        assertThat(cache.get("1")).isNotNull();
+        assertThat(cache.get("3")).isNotNull();
+    }
+
+    @Test
+    public void allocate_should_not_reuse_memory_of_evicted_content_until_it_is_released() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(64, 64, 16);
+        byte[] content = nextBytes(64);
+        put(cache, "1", content);
+
+        CachedContent read = cache.get("1");
+        assertThat(cache.allocate(64)).isNull();
+        assertThat(cache.get("1")).isNull();
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        read.copy(target, 0, 64, new byte[16]);
+        assertThat(target.toByteArray()).isEqualTo(content);
+
+        read.release();
+        assertThat(cache.allocate(64)).isNotNull();
+    }
+
+    @Test
+    public void invalidate_should_remove_cached_content() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(1024, 100, 16);
+        put(cache, "1", nextBytes(10));
+        cache.invalidate("1");
+        assertThat(cache.get("1")).isNull();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_should_throw_exception_if_content_is_already_released() {
+        CachedContent cachedContent = new DocumentContentCache(1024, 100, 16).allocate(10);
+        cachedContent.release();
+        cachedContent.release();
+    }
+
+    @Test
+    public void metrics_should_reflect_cache_statistics() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(160, 100, 16);
+        put(cache, "1", nextBytes(100));
+        cache.get("1").release();
+        put(cache, "2", nextBytes(40));
+        put(cache, "3", nextBytes(30));
+        cache.get("4");
+
+        Map<String, Number> metrics =
+            cache.metrics().stream().collect(Collectors.toMap(Metric::getName, metric -> (Number) metric.getValue()));
+        assertThat(metrics).containsEntry("cache.documents.content.size", 2L);
+        assertThat(metrics).containsEntry("cache.documents.content.bytes", 70L);
+        assertThat(metrics).containsEntry("cache.documents.content.hit", 1L);
+        assertThat(metrics).containsEntry("cache.documents.content.miss", 1L);
+        assertThat(metrics).containsEntry("cache.documents.content.eviction", 1L);
+    }
+
+    private static void put(DocumentContentCache cache, String id, byte[] content) throws Exception {
+        CachedContent cachedContent = cache.allocate(content.length);
+        cachedContent.asOutputStream().write(content);
+        cache.put(id, cachedContent);
+        cachedContent.release();
+    }
+}
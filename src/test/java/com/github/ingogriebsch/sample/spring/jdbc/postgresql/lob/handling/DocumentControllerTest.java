@@ -1,54 +1,127 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
 import static java.util.UUID.randomUUID;
 
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.LARGE_TRANSFER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.METADATA;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.AdmissionControl.Budget.SMALL_TRANSFER;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.ContentDispositionUtils.attachment;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.APPLICATION_ZIP_VALUE;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_DELETE;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_DELETE_ALL;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_DOWNLOAD;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_FIND_ALL;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_FIND_ONE;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD_ALL;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD_CHUNK;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD_COMMIT;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD_SESSION;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.PATH_UPLOAD_SESSIONS;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_AFTER;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_CONTENT_DIGEST;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_CONTENT_LENGTH;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_CONTENT_TYPE;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_FILENAME;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_MODIFIED_BEFORE;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_SIZE;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PARAM_STREAM;
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PART_SOURCE;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentController.REQUEST_PART_SOURCES;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.springframework.core.io.ResourceLoader.CLASSPATH_URL_PREFIX;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.IF_RANGE;
+import static org.springframework.http.HttpHeaders.LINK;
+import static org.springframework.http.HttpHeaders.LOCATION;
+import static org.springframework.http.HttpHeaders.RANGE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.fileUpload;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-import java.sql.Blob;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.MultipartAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
-@Import(WebMvcConfiguration.class)
+@Import({ DocumentConfiguration.class, WebMvcConfiguration.class })
+@ImportAutoConfiguration(MultipartAutoConfiguration.class)
 @RunWith(SpringRunner.class)
+@TestPropertySource(properties = "spring.http.multipart.max-file-size=1KB")
 @WebMvcTest(DocumentController.class)
 public class DocumentControllerTest {
 
+    private static final String CONTENT_DIGEST = "7cbd4e03525d67914883ebc9b8fdade2405e38401812f60ee30ed36954014e42";
+    private static final long LAST_MODIFIED = 1560000000000L;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -58,24 +131,99 @@ public class DocumentControllerTest {
     @MockBean
     private DocumentRepository documentRepository;
 
+    @MockBean
+    private AdmissionControl admissionControl;
+
+    @MockBean
+    private UploadSessionRepository uploadSessionRepository;
+
     @Test
     public void findAll_should_return_matching_list() throws Exception {
-        given(documentRepository.findAll()).willReturn(newArrayList());
+        given(documentRepository.findAll(null, 100)).willReturn(newArrayList());
 
         ResultActions actions = mockMvc.perform(get(PATH_FIND_ALL).accept(APPLICATION_JSON_UTF8));
         actions.andExpect(status().isOk());
+        actions.andExpect(header().doesNotExist(LINK));
 
-        verify(documentRepository).findAll();
+        verify(documentRepository).findAll(null, 100);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void findAll_should_link_next_page_if_page_is_full() throws Exception {
+        List<Document> documents = newArrayList(new Document("a", "a.txt", TEXT_PLAIN_VALUE, 1L),
+            new Document("b", "b.txt", TEXT_PLAIN_VALUE, 1L));
+        given(documentRepository.findAll("0", 2)).willReturn(documents);
+
+        ResultActions actions = mockMvc.perform(
+            get(PATH_FIND_ALL).param(REQUEST_PARAM_AFTER, "0").param(REQUEST_PARAM_SIZE, "2").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isOk());
+        actions.andExpect(jsonPath("$[1].id").value("b"));
+        actions.andExpect(header().string(LINK, "<http://localhost/api/documents?after=b&size=2>; rel=\"next\""));
+
+        verify(documentRepository).findAll("0", 2);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void findAll_should_limit_page_size() throws Exception {
+        given(documentRepository.findAll(null, 1000)).willReturn(newArrayList());
+
+        ResultActions actions =
+            mockMvc.perform(get(PATH_FIND_ALL).param(REQUEST_PARAM_SIZE, "100000").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isOk());
+
+        verify(documentRepository).findAll(null, 1000);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void findAll_should_stream_documents_if_requested() throws Exception {
+        willAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Consumer<Document> consumer = (Consumer<Document>) invocation.getArguments()[0];
+            consumer.accept(new Document("a", "a.txt", TEXT_PLAIN_VALUE, 1L));
+            consumer.accept(new Document("b", "b.txt", TEXT_PLAIN_VALUE, 1L));
+            return null;
+        }).given(documentRepository).streamAll(any(), eq(500));
+
+        ResultActions actions =
+            mockMvc.perform(get(PATH_FIND_ALL).param(REQUEST_PARAM_STREAM, "true").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isOk());
+        actions.andExpect(header().string(CONTENT_TYPE, APPLICATION_JSON_UTF8_VALUE));
+        actions.andExpect(jsonPath("$.length()").value(2));
+        actions.andExpect(jsonPath("$[0].id").value("a"));
+        actions.andExpect(jsonPath("$[1].id").value("b"));
+
+        verify(documentRepository).streamAll(any(), eq(500));
         verifyNoMoreInteractions(documentRepository);
     }
 
     @Test
     public void findOne_should_return_ok_if_document_is_known() throws Exception {
         String id = randomUUID().toString();
-        given(documentRepository.findOne(id)).willReturn(new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L));
+        given(documentRepository.findOne(id))
+            .willReturn(new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED));
 
         ResultActions actions = mockMvc.perform(get(PATH_FIND_ONE, id).accept(APPLICATION_JSON_UTF8));
         actions.andExpect(status().isOk());
+        actions.andExpect(header().string(ETAG, "\"" + CONTENT_DIGEST + "\""));
+        actions.andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED));
+
+        verify(documentRepository).findOne(id);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void findOne_should_return_not_modified_if_etag_matches() throws Exception {
+        String id = randomUUID().toString();
+        given(documentRepository.findOne(id))
+            .willReturn(new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED));
+
+        ResultActions actions = mockMvc
+            .perform(get(PATH_FIND_ONE, id).accept(APPLICATION_JSON_UTF8).header(IF_NONE_MATCH, "\"" + CONTENT_DIGEST + "\""));
+        actions.andExpect(status().isNotModified());
+        actions.andExpect(content().string(""));
 
         verify(documentRepository).findOne(id);
         verifyNoMoreInteractions(documentRepository);
@@ -123,15 +271,310 @@ public class DocumentControllerTest {
         verifyNoMoreInteractions(documentRepository);
     }
 
+    @Test
+    public void uploadStream_should_save_request_body_as_document() throws Exception {
+        willAnswer(invocation -> {
+            Document template = invocation.getArgumentAt(0, Document.class);
+            return new Document(template.getId(), template.getFilename(), template.getContentType(),
+                (long) toByteArray(invocation.getArgumentAt(1, InputStream.class)).length);
+        }).given(documentRepository).save(any(), any());
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).param(REQUEST_PARAM_CONTENT_TYPE, TEXT_PLAIN_VALUE)
+            .contentType(APPLICATION_OCTET_STREAM_VALUE).header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"")
+            .content("hello").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+        actions.andExpect(jsonPath("$.filename").value("test.txt"));
+        actions.andExpect(jsonPath("$.contentType").value(TEXT_PLAIN_VALUE));
+        actions.andExpect(jsonPath("$.contentLength").value(5));
+
+        verify(documentRepository).save(any(), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_hand_declared_content_digest_to_repository() throws Exception {
+        String digest = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+        willAnswer(invocation -> {
+            Document template = invocation.getArgumentAt(0, Document.class);
+            assertThat(template.getContentDigest()).isEqualTo(digest);
+            return new Document(template.getId(), template.getFilename(), template.getContentType(), 5L, 4711L, digest, 0L);
+        }).given(documentRepository).save(any(), any());
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).param(REQUEST_PARAM_CONTENT_DIGEST, digest)
+            .contentType(APPLICATION_OCTET_STREAM_VALUE).header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"")
+            .content("hello").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+
+        verify(documentRepository).save(any(), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_return_bad_request_if_content_does_not_match_declared_digest() throws Exception {
+        given(documentRepository.save(any(), any())).willThrow(new ContentDigestMismatchException("0", "1"));
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).param(REQUEST_PARAM_CONTENT_DIGEST, "0")
+            .contentType(APPLICATION_OCTET_STREAM_VALUE).header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"")
+            .content("hello").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void uploadStream_should_return_bad_request_if_filename_is_not_given() throws Exception {
+        ResultActions actions = mockMvc.perform(
+            post(PATH_UPLOAD).contentType(APPLICATION_OCTET_STREAM_VALUE).content("hello").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isBadRequest());
+
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_return_unsupported_media_type_if_body_is_not_an_octet_stream() throws Exception {
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).contentType(APPLICATION_JSON_UTF8)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"test.json\"").content("{}").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isUnsupportedMediaType());
+
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_return_unsupported_media_type_if_content_type_is_not_given() throws Exception {
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"").content("hello").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isUnsupportedMediaType());
+
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_return_payload_too_large_if_declared_length_exceeds_maximum_file_size() throws Exception {
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).contentType(APPLICATION_OCTET_STREAM_VALUE)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"").header(CONTENT_LENGTH, 1025).content(new byte[1025])
+            .accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isPayloadTooLarge());
+
+        verify(admissionControl, never()).admit(any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadStream_should_return_payload_too_large_if_content_exceeds_maximum_file_size() throws Exception {
+        willAnswer(invocation -> toByteArray(invocation.getArgumentAt(1, InputStream.class))).given(documentRepository)
+            .save(any(), any());
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD).contentType(APPLICATION_OCTET_STREAM_VALUE)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"test.txt\"").header(CONTENT_LENGTH, 5).content(new byte[1025])
+            .accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void uploadAll_should_save_all_given_sources() throws Exception {
+        willAnswer(DocumentControllerTest::saveAll).given(documentRepository).saveAll(any(), eq(100));
+
+        ResultActions actions = mockMvc.perform(fileUpload(PATH_UPLOAD_ALL)
+            .file(new MockMultipartFile(REQUEST_PART_SOURCES, "a.txt", TEXT_PLAIN_VALUE, "a".getBytes()))
+            .file(new MockMultipartFile(REQUEST_PART_SOURCES, "b.txt", TEXT_PLAIN_VALUE, "bb".getBytes()))
+            .accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+        actions.andExpect(jsonPath("$.length()").value(2));
+        actions.andExpect(jsonPath("$[0].filename").value("a.txt"));
+        actions.andExpect(jsonPath("$[1].filename").value("b.txt"));
+        actions.andExpect(jsonPath("$[1].contentLength").value(2));
+
+        verify(documentRepository).saveAll(any(), eq(100));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadArchive_should_save_all_files_of_given_archive() throws Exception {
+        willAnswer(DocumentControllerTest::saveAll).given(documentRepository).saveAll(any(), eq(100));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("a".getBytes());
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("bb".getBytes());
+        }
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD_ALL).contentType(APPLICATION_ZIP_VALUE)
+            .content(archive.toByteArray()).accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+        actions.andExpect(jsonPath("$.length()").value(2));
+        actions.andExpect(jsonPath("$[0].filename").value("a.txt"));
+        actions.andExpect(jsonPath("$[1].filename").value("b.txt"));
+        actions.andExpect(jsonPath("$[1].contentLength").value(2));
+
+        verify(documentRepository).saveAll(any(), eq(100));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void uploadArchive_should_return_payload_too_large_if_file_exceeds_maximum_file_size() throws Exception {
+        willAnswer(DocumentControllerTest::saveAll).given(documentRepository).saveAll(any(), eq(100));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write(new byte[1025]);
+        }
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD_ALL).contentType(APPLICATION_ZIP_VALUE)
+            .content(archive.toByteArray()).accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void findOne_should_return_service_unavailable_if_request_is_not_admitted() throws Exception {
+        willThrow(new AdmissionRejectedException(METADATA, 3)).given(admissionControl).admit(METADATA);
+
+        ResultActions actions = mockMvc.perform(get(PATH_FIND_ONE, randomUUID().toString()).accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isServiceUnavailable());
+        actions.andExpect(header().string(RETRY_AFTER, "3"));
+
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_admit_small_content_to_small_transfer_budget() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document =
+            new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 10L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        mockMvc.perform(get(PATH_DOWNLOAD, documentId)).andExpect(status().isOk());
+
+        verify(admissionControl).admit(SMALL_TRANSFER);
+        verify(admissionControl).release(any());
+        verifyNoMoreInteractions(admissionControl);
+    }
+
+    @Test
+    public void download_should_not_read_content_if_request_is_not_admitted() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.bin", APPLICATION_OCTET_STREAM_VALUE, 2048L * 1024, 4711L,
+            CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+        willThrow(new AdmissionRejectedException(LARGE_TRANSFER, 1)).given(admissionControl).admit(LARGE_TRANSFER);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId));
+        actions.andExpect(status().isServiceUnavailable());
+        actions.andExpect(header().string(RETRY_AFTER, "1"));
+
+        verify(documentRepository).findOne(documentId);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void createUploadSession_should_return_created_session() throws Exception {
+        UploadSession session = new UploadSession("1", "a.bin", APPLICATION_OCTET_STREAM_VALUE, 100L, emptyList());
+        given(uploadSessionRepository.create("a.bin", APPLICATION_OCTET_STREAM_VALUE, 100L)).willReturn(session);
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD_SESSIONS).param(REQUEST_PARAM_FILENAME, "a.bin")
+            .param(REQUEST_PARAM_CONTENT_LENGTH, "100").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+        actions.andExpect(header().string(LOCATION, "http://localhost/api/documents/uploads/1"));
+        actions.andExpect(jsonPath("$.id").value("1"));
+        actions.andExpect(jsonPath("$.chunks").isEmpty());
+    }
+
+    @Test
+    public void createUploadSession_should_return_payload_too_large_if_announced_length_exceeds_maximum_size() throws Exception {
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD_SESSIONS).param(REQUEST_PARAM_FILENAME, "a.bin")
+            .param(REQUEST_PARAM_CONTENT_LENGTH, "" + (1024L * 1024 * 1024 + 1)).accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isPayloadTooLarge());
+
+        verifyNoMoreInteractions(uploadSessionRepository);
+    }
+
+    @Test
+    public void findUploadSession_should_return_not_found_if_session_is_not_known() throws Exception {
+        mockMvc.perform(get(PATH_UPLOAD_SESSION, "1").accept(APPLICATION_JSON_UTF8)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void uploadChunk_should_save_request_body_as_chunk() throws Exception {
+        given(uploadSessionRepository.saveChunk(eq("1"), eq(2), any(), eq(5L))).willReturn(true);
+
+        ResultActions actions = mockMvc.perform(put(PATH_UPLOAD_CHUNK, "1", 2).contentType(APPLICATION_OCTET_STREAM_VALUE)
+            .header(CONTENT_LENGTH, 5).content("hello"));
+        actions.andExpect(status().isNoContent());
+
+        verify(uploadSessionRepository).saveChunk(eq("1"), eq(2), any(), eq(5L));
+        verify(admissionControl).admit(SMALL_TRANSFER);
+    }
+
+    @Test
+    public void uploadChunk_should_return_length_required_if_length_is_not_given() throws Exception {
+        ResultActions actions =
+            mockMvc.perform(put(PATH_UPLOAD_CHUNK, "1", 0).contentType(APPLICATION_OCTET_STREAM_VALUE).content("hello"));
+        actions.andExpect(status().isLengthRequired());
+
+        verify(uploadSessionRepository, never()).saveChunk(anyString(), anyInt(), any(), anyLong());
+    }
+
+    @Test
+    public void uploadChunk_should_return_payload_too_large_if_chunk_exceeds_maximum_size() throws Exception {
+        ResultActions actions = mockMvc.perform(put(PATH_UPLOAD_CHUNK, "1", 0).contentType(APPLICATION_OCTET_STREAM_VALUE)
+            .header(CONTENT_LENGTH, 16 * 1024 * 1024 + 1).content("hello"));
+        actions.andExpect(status().isPayloadTooLarge());
+
+        verify(uploadSessionRepository, never()).saveChunk(anyString(), anyInt(), any(), anyLong());
+    }
+
+    @Test
+    public void uploadChunk_should_return_payload_too_large_if_chunks_exceed_maximum_size() throws Exception {
+        given(uploadSessionRepository.saveChunk(eq("1"), eq(0), any(), eq(5L)))
+            .willThrow(new ContentTooLargeException("too large"));
+
+        ResultActions actions = mockMvc.perform(put(PATH_UPLOAD_CHUNK, "1", 0).contentType(APPLICATION_OCTET_STREAM_VALUE)
+            .header(CONTENT_LENGTH, 5).content("hello"));
+        actions.andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void commitUpload_should_return_stored_document() throws Exception {
+        given(uploadSessionRepository.commit("1")).willReturn(new Document("2", "a.bin", APPLICATION_OCTET_STREAM_VALUE, 10L));
+
+        ResultActions actions = mockMvc.perform(post(PATH_UPLOAD_COMMIT, "1").accept(APPLICATION_JSON_UTF8));
+        actions.andExpect(status().isCreated());
+        actions.andExpect(jsonPath("$.id").value("2"));
+        actions.andExpect(jsonPath("$.contentLength").value(10));
+
+        verify(admissionControl).admit(LARGE_TRANSFER);
+    }
+
+    @Test
+    public void commitUpload_should_return_conflict_if_chunks_are_incomplete() throws Exception {
+        given(uploadSessionRepository.commit("1")).willThrow(new IllegalStateException());
+
+        mockMvc.perform(post(PATH_UPLOAD_COMMIT, "1").accept(APPLICATION_JSON_UTF8)).andExpect(status().isConflict());
+    }
+
+    @Test
+    public void commitUpload_should_return_payload_too_large_if_chunks_exceed_maximum_size() throws Exception {
+        given(uploadSessionRepository.commit("1")).willThrow(new ContentTooLargeException("too large"));
+
+        mockMvc.perform(post(PATH_UPLOAD_COMMIT, "1").accept(APPLICATION_JSON_UTF8)).andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void deleteUploadSession_should_return_ok_if_session_is_known() throws Exception {
+        given(uploadSessionRepository.delete("1")).willReturn(true);
+
+        mockMvc.perform(delete(PATH_UPLOAD_SESSION, "1")).andExpect(status().isOk());
+    }
+
     @Test
     public void download_should_return_not_found_if_document_is_not_known() throws Exception {
         String id = randomUUID().toString();
-        given(documentRepository.exists(id)).willReturn(false);
+        given(documentRepository.findOne(id)).willReturn(null);
 
         ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, id));
         actions.andExpect(status().isNotFound());
 
-        verify(documentRepository).exists(id);
+        verify(documentRepository).findOne(id);
         verifyNoMoreInteractions(documentRepository);
     }
 
@@ -140,12 +583,8 @@ public class DocumentControllerTest {
         String documentId = randomUUID().toString();
         Resource resource = resourceLoader.getResource(CLASSPATH_URL_PREFIX + "/documents/simple-txt-file.txt");
 
-        Blob blob = mock(Blob.class);
-        given(blob.getBinaryStream()).willReturn(resource.getInputStream());
-
-        Document document = new Document(documentId, resource.getFilename(), TEXT_PLAIN_VALUE, resource.contentLength(), blob);
-
-        given(documentRepository.exists(documentId)).willReturn(true);
+        Document document = new Document(documentId, resource.getFilename(), TEXT_PLAIN_VALUE, resource.contentLength(), 4711L,
+            CONTENT_DIGEST, LAST_MODIFIED);
         given(documentRepository.findOne(documentId)).willReturn(document);
 
         ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId));
@@ -154,12 +593,267 @@ public class DocumentControllerTest {
         actions.andExpect(header().longValue(CONTENT_LENGTH, document.getContentLength()));
         actions.andExpect(header().string(CONTENT_TYPE, document.getContentType()));
         actions.andExpect(header().string(CONTENT_DISPOSITION, attachment(document.getFilename())));
+        actions.andExpect(header().string(ACCEPT_RANGES, "bytes"));
+        actions.andExpect(header().doesNotExist(VARY));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_partial_content_if_range_is_requested() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=10-19"));
+        actions.andExpect(status().isPartialContent());
+
+        actions.andExpect(header().longValue(CONTENT_LENGTH, 10));
+        actions.andExpect(header().string(CONTENT_RANGE, "bytes 10-19/100"));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any(), eq(10L), eq(10L));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_multipart_content_if_multiple_ranges_are_requested() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=0-9,-10"));
+        actions.andExpect(status().isPartialContent());
+
+        actions.andExpect(header().string(CONTENT_TYPE, startsWith("multipart/byteranges; boundary=")));
+        actions.andExpect(content().string(containsString("Content-Range: bytes 0-9/100")));
+        actions.andExpect(content().string(containsString("Content-Range: bytes 90-99/100")));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any(), eq(0L), eq(10L));
+        verify(documentRepository).readContent(eq(document), any(), eq(90L), eq(10L));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_range_not_satisfiable_if_range_is_not_satisfiable() throws Exception {
+        String documentId = randomUUID().toString();
+        given(documentRepository.findOne(documentId))
+            .willReturn(new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED));
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=100-"));
+        actions.andExpect(status().isRequestedRangeNotSatisfiable());
+        actions.andExpect(header().string(CONTENT_RANGE, "bytes */100"));
+
+        verify(documentRepository).findOne(documentId);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_whole_content_if_range_is_malformed() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=abc"));
+        actions.andExpect(status().isOk());
+        actions.andExpect(header().longValue(CONTENT_LENGTH, document.getContentLength()));
+        actions.andExpect(header().doesNotExist(CONTENT_RANGE));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_whole_content_if_range_is_conditional() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions =
+            mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=10-19").header(IF_RANGE, "\"foo\""));
+        actions.andExpect(status().isOk());
+        actions.andExpect(header().longValue(CONTENT_LENGTH, document.getContentLength()));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_not_modified_without_touching_content_if_etag_matches() throws Exception {
+        String documentId = randomUUID().toString();
+        given(documentRepository.findOne(documentId))
+            .willReturn(new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED));
+
+        ResultActions actions =
+            mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(IF_NONE_MATCH, "\"" + CONTENT_DIGEST + "\""));
+        actions.andExpect(status().isNotModified());
+        actions.andExpect(header().string(ETAG, "\"" + CONTENT_DIGEST + "\""));
+
+        verify(documentRepository).findOne(documentId);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_not_modified_without_touching_content_if_not_modified_since() throws Exception {
+        String documentId = randomUUID().toString();
+        given(documentRepository.findOne(documentId))
+            .willReturn(new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED));
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(IF_MODIFIED_SINCE, LAST_MODIFIED));
+        actions.andExpect(status().isNotModified());
+
+        verify(documentRepository).findOne(documentId);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_partial_content_if_range_is_conditional_and_etag_matches() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(
+            get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=10-19").header(IF_RANGE, "\"" + CONTENT_DIGEST + "\""));
+        actions.andExpect(status().isPartialContent());
+        actions.andExpect(header().string(CONTENT_RANGE, "bytes 10-19/100"));
 
-        verify(documentRepository).exists(documentId);
         verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any(), eq(10L), eq(10L));
         verifyNoMoreInteractions(documentRepository);
     }
 
+    @Test
+    public void download_should_return_encoded_content_if_encoding_is_accepted() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = encodedDocument(documentId);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(ACCEPT_ENCODING, "deflate, gzip;q=0.5"));
+        actions.andExpect(status().isOk());
+
+        actions.andExpect(header().longValue(CONTENT_LENGTH, 40));
+        actions.andExpect(header().string(CONTENT_ENCODING, "gzip"));
+        actions.andExpect(header().string(ETAG, document.getEncodedETag()));
+        actions.andExpect(header().string(VARY, ACCEPT_ENCODING));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readEncodedContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_decoded_content_if_encoding_is_not_accepted() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = encodedDocument(documentId);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(ACCEPT_ENCODING, "gzip;q=0"));
+        actions.andExpect(status().isOk());
+
+        actions.andExpect(header().longValue(CONTENT_LENGTH, 100));
+        actions.andExpect(header().doesNotExist(CONTENT_ENCODING));
+        actions.andExpect(header().string(ETAG, document.getETag()));
+        actions.andExpect(header().string(VARY, ACCEPT_ENCODING));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_return_decoded_partial_content_if_range_is_requested() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = encodedDocument(documentId);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        ResultActions actions =
+            mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(ACCEPT_ENCODING, "gzip").header(RANGE, "bytes=10-19"));
+        actions.andExpect(status().isPartialContent());
+
+        actions.andExpect(header().longValue(CONTENT_LENGTH, 10));
+        actions.andExpect(header().doesNotExist(CONTENT_ENCODING));
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any(), eq(10L), eq(10L));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void download_should_transfer_large_content_asynchronously() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.bin", APPLICATION_OCTET_STREAM_VALUE, 2048L * 1024, 4711L,
+            CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+        willAnswer(invocation -> {
+            invocation.getArgumentAt(1, OutputStream.class).write("content".getBytes(UTF_8));
+            return null;
+        }).given(documentRepository).readContent(eq(document), any());
+
+        MvcResult result = mockMvc.perform(get(PATH_DOWNLOAD, documentId)).andExpect(request().asyncStarted()).andReturn();
+        // Asynchronous downloads do not time out, so the transfer needs to be awaited explicitly. The content is written to the
+        // response of the initial request.
+        result.getAsyncResult(10000);
+        MockHttpServletResponse response = result.getResponse();
+        assertThat(response.getStatus()).isEqualTo(OK.value());
+
+        assertThat(response.getHeader(CONTENT_LENGTH)).isEqualTo("" + document.getContentLength());
+        assertThat(response.getHeader(CONTENT_TYPE)).isEqualTo(document.getContentType());
+        assertThat(response.getHeader(ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders(ETAG)).containsExactly("\"" + CONTENT_DIGEST + "\"");
+        assertThat(response.getContentAsString()).isEqualTo("content");
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any());
+        verifyNoMoreInteractions(documentRepository);
+        verify(admissionControl).admit(LARGE_TRANSFER);
+    }
+
+    @Test
+    public void download_should_transfer_large_partial_content_asynchronously() throws Exception {
+        String documentId = randomUUID().toString();
+        Document document = new Document(documentId, "test.bin", APPLICATION_OCTET_STREAM_VALUE, 2048L * 1024, 4711L,
+            CONTENT_DIGEST, LAST_MODIFIED);
+        given(documentRepository.findOne(documentId)).willReturn(document);
+
+        MvcResult result = mockMvc.perform(get(PATH_DOWNLOAD, documentId).header(RANGE, "bytes=10-19"))
+            .andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult(10000);
+        MockHttpServletResponse response = result.getResponse();
+        assertThat(response.getStatus()).isEqualTo(PARTIAL_CONTENT.value());
+
+        assertThat(response.getHeader(CONTENT_LENGTH)).isEqualTo("10");
+        assertThat(response.getHeader(CONTENT_RANGE)).isEqualTo("bytes 10-19/2097152");
+
+        verify(documentRepository).findOne(documentId);
+        verify(documentRepository).readContent(eq(document), any(), eq(10L), eq(10L));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void isEncodingAccepted_should_respect_quality_values() {
+        assertThat(DocumentController.isEncodingAccepted(null, "gzip")).isFalse();
+        assertThat(DocumentController.isEncodingAccepted("deflate", "gzip")).isFalse();
+        assertThat(DocumentController.isEncodingAccepted("GZIP", "gzip")).isTrue();
+        assertThat(DocumentController.isEncodingAccepted("gzip;q=0.001", "gzip")).isTrue();
+        assertThat(DocumentController.isEncodingAccepted("gzip; q=0.0", "gzip")).isFalse();
+        assertThat(DocumentController.isEncodingAccepted("*", "gzip")).isTrue();
+        assertThat(DocumentController.isEncodingAccepted("*;q=0", "gzip")).isFalse();
+    }
+
+    @Test
+    public void isEncodingAccepted_should_prefer_listed_encoding_over_wildcard() {
+        assertThat(DocumentController.isEncodingAccepted("*;q=0, gzip", "gzip")).isTrue();
+        assertThat(DocumentController.isEncodingAccepted("gzip, *;q=0", "gzip")).isTrue();
+        assertThat(DocumentController.isEncodingAccepted("*, gzip;q=0", "gzip")).isFalse();
+        assertThat(DocumentController.isEncodingAccepted("gzip;q=0, *", "gzip")).isFalse();
+        assertThat(DocumentController.isEncodingAccepted("deflate;q=0, *", "gzip")).isTrue();
+    }
+
     @Test
     public void delete_should_return_not_found_if_document_is_not_known() throws Exception {
         String id = randomUUID().toString();
@@ -182,5 +876,67 @@ public class DocumentControllerTest {
 
         verify(documentRepository).deleteIfExists(id);
         verifyNoMoreInteractions(documentRepository);
+        verify(admissionControl).admit(METADATA);
+    }
+
+    @Test
+    public void deleteAll_should_delete_documents_with_given_ids() throws Exception {
+        List<String> ids = newArrayList("1", "2", "3");
+        given(documentRepository.deleteAllIfExist(ids)).willReturn(newArrayList("1", "3"));
+
+        ResultActions actions =
+            mockMvc.perform(delete(PATH_DELETE_ALL).contentType(APPLICATION_JSON_UTF8).content("[\"1\", \"2\", \"3\"]"));
+        actions.andExpect(status().isOk());
+        actions.andExpect(jsonPath("$.deleted").value(2));
+
+        verify(documentRepository).deleteAllIfExist(ids);
+        verifyNoMoreInteractions(documentRepository);
+        verify(admissionControl).admit(LARGE_TRANSFER);
+    }
+
+    @Test
+    public void deleteAll_should_delete_documents_modified_before_given_date_in_batches() throws Exception {
+        given(documentRepository.deleteAllModifiedBefore(LAST_MODIFIED, 1000)).willReturn(nCopies(1000, "1"))
+            .willReturn(nCopies(1, "2"));
+
+        ResultActions actions =
+            mockMvc.perform(delete(PATH_DELETE_ALL).param(REQUEST_PARAM_MODIFIED_BEFORE, "2019-06-08T13:20:00Z"));
+        actions.andExpect(status().isOk());
+        actions.andExpect(jsonPath("$.deleted").value(1001));
+
+        verify(documentRepository, times(2)).deleteAllModifiedBefore(LAST_MODIFIED, 1000);
+        verifyNoMoreInteractions(documentRepository);
+        verify(admissionControl).admit(LARGE_TRANSFER);
+    }
+
+    @Test
+    public void deleteAll_should_return_bad_request_if_neither_ids_nor_date_is_given() throws Exception {
+        ResultActions actions = mockMvc.perform(delete(PATH_DELETE_ALL));
+        actions.andExpect(status().isBadRequest());
+
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    private static Document encodedDocument(String id) {
+        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, CONTENT_DIGEST, LAST_MODIFIED);
+        document.setContentEncoding("gzip");
+        document.setEncodedContentLength(40L);
+        return document;
+    }
+
+    // Consumes the given sources like the repository does.
+    @SuppressWarnings("unchecked")
+    private static List<Document> saveAll(InvocationOnMock invocation) throws Exception {
+        List<Document> documents = newArrayList();
+        Iterator<DocumentSource> sources = invocation.getArgumentAt(0, Iterator.class);
+        while (sources.hasNext()) {
+            DocumentSource source = sources.next();
+            try (InputStream content = source.getContent()) {
+                Document template = source.getTemplate();
+                documents.add(new Document(template.getId(), template.getFilename(), template.getContentType(),
+                    (long) toByteArray(content).length));
+            }
+        }
+        return documents;
     }
 }
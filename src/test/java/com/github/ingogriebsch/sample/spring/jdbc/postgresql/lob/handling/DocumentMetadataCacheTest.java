@@ -0,0 +1,62 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+public class DocumentMetadataCacheTest {
+
+    @Test(expected = NullPointerException.class)
+    public void get_should_throw_exception_if_input_is_null() {
+        new DocumentMetadataCache(10, 60).get(null);
+    }
+
+    @Test
+    public void get_should_return_null_if_document_is_not_cached() {
+        assertThat(new DocumentMetadataCache(10, 60).get("1")).isNull();
+    }
+
+    @Test
+    public void get_should_return_document_if_document_is_cached() {
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L);
+        DocumentMetadataCache cache = new DocumentMetadataCache(10, 60);
+        cache.put(document);
+        assertThat(cache.get("1")).isSameAs(document);
+    }
+
+    @Test
+    public void get_should_return_null_if_document_is_invalidated() {
+        DocumentMetadataCache cache = new DocumentMetadataCache(10, 60);
+        cache.put(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L));
+        cache.invalidate("1");
+        assertThat(cache.get("1")).isNull();
+    }
+
+    @Test
+    public void put_should_not_cache_anything_if_maximum_size_is_zero() {
+        DocumentMetadataCache cache = new DocumentMetadataCache(0, 60);
+        cache.put(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L));
+        assertThat(cache.get("1")).isNull();
+    }
+
+    @Test
+    public void metrics_should_reflect_cache_statistics() {
+        DocumentMetadataCache cache = new DocumentMetadataCache(1, 60);
+        cache.put(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L));
+        cache.get("1");
+        cache.get("2");
+        cache.put(new Document("2", "test.txt", TEXT_PLAIN_VALUE, 100L));
+
+        Map<String, Number> metrics =
+            cache.metrics().stream().collect(Collectors.toMap(Metric::getName, metric -> (Number) metric.getValue()));
+        assertThat(metrics).containsEntry("cache.documents.metadata.size", 1L);
+        assertThat(metrics).containsEntry("cache.documents.metadata.hit", 1L);
+        assertThat(metrics).containsEntry("cache.documents.metadata.miss", 1L);
+        assertThat(metrics).containsEntry("cache.documents.metadata.eviction", 1L);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+public class DocumentMetricsTest {
+
+    private final DocumentMetrics documentMetrics = new DocumentMetrics();
+
+    @Test
+    public void metrics_should_return_empty_collection_if_nothing_was_recorded() {
+        assertThat(documentMetrics.metrics()).isEmpty();
+    }
+
+    @Test
+    public void metrics_should_return_recorded_times_in_milliseconds() {
+        documentMetrics.recordTime("timer", MILLISECONDS.toNanos(3), false);
+        documentMetrics.recordTime("timer", MILLISECONDS.toNanos(1) / 2, true);
+
+        assertThat(metrics()).containsOnly(entry("timer.count", 2L), entry("timer.errors", 1L), entry("timer.time.total", 3.5),
+            entry("timer.time.max", 3.0));
+    }
+
+    @Test
+    public void metrics_should_return_recorded_amounts() {
+        documentMetrics.recordAmount("summary", 10);
+        documentMetrics.recordAmount("summary", 100);
+        documentMetrics.recordAmount("summary", 0);
+
+        assertThat(metrics()).containsOnly(entry("summary.count", 3L), entry("summary.total", 110L), entry("summary.max", 100L));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void recordTime_should_throw_exception_if_input_is_null() {
+        documentMetrics.recordTime(null, 0, false);
+    }
+
+    private Map<String, Number> metrics() {
+        return documentMetrics.metrics().stream().collect(toMap(Metric::getName, Metric::getValue));
+    }
+}
@@ -9,6 +9,431 @@
  */
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.util.Collections.singletonList;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.hash.Hashing.sha256;
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+@RunWith(MockitoJUnitRunner.class)
 public class DocumentRepositoryTest {
 
+    private static final long LAST_MODIFIED = 1560000000000L;
+
+    @Test
+    public void findOne_should_return_cached_document_without_querying() {
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L);
+        DocumentMetadataCache documentMetadataCache = new DocumentMetadataCache(10, 60);
+        documentMetadataCache.put(document);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, documentMetadataCache, new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.findOne("1")).isSameAs(document);
+        assertThat(documentRepository.exists("1")).isTrue();
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findOne_should_cache_queried_document() {
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L);
+        DocumentMetadataCache documentMetadataCache = new DocumentMetadataCache(10, 60);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.query(anyString(), any(RowMapper.class), (Object[]) anyVararg()))
+            .willReturn(newArrayList(document));
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, documentMetadataCache, new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.findOne("1")).isSameAs(document);
+        assertThat(documentMetadataCache.get("1")).isSameAs(document);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findOne_should_not_open_large_object_of_queried_document() {
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.query(anyString(), any(RowMapper.class), (Object[]) anyVararg()))
+            .willReturn(newArrayList(document));
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(0, 60), new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.findOne("1").getContentOid()).isEqualTo(4711L);
+        assertThat(documentRepository.exists("1")).isTrue();
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    public void deleteIfExists_should_invalidate_cached_document() throws Exception {
+        DocumentMetadataCache documentMetadataCache = new DocumentMetadataCache(10, 60);
+        documentMetadataCache.put(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenDeletedDocuments(jdbcTemplate, "1", null);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, documentMetadataCache, new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.deleteIfExists("1")).isTrue();
+        assertThat(documentMetadataCache.get("1")).isNull();
+        verify(jdbcTemplate, never()).update(any(PreparedStatementCreator.class));
+    }
+
+    @Test
+    public void deleteIfExists_should_release_content_of_deleted_document() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenDeletedDocuments(jdbcTemplate, "1", 4711L);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.deleteIfExists("1")).isTrue();
+        verify(jdbcTemplate).update(any(PreparedStatementCreator.class));
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void readContent_should_serve_cached_content_without_touching_large_object() throws Exception {
+        byte[] content = nextBytes(100);
+        DocumentContentCache documentContentCache = new DocumentContentCache(1024, 100, 16);
+        givenCachedContent(documentContentCache, "1", content);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), documentContentCache);
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(documentRepository.readContent(document, target)).isEqualTo(100);
+        assertThat(target.toByteArray()).isEqualTo(content);
+
+        target.reset();
+        assertThat(documentRepository.readContent(document, target, 10, 20)).isEqualTo(20);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 30));
+
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void readContent_should_put_content_into_cache() throws Exception {
+        byte[] content = nextBytes(100);
+        DocumentContentCache documentContentCache = new DocumentContentCache(1024, 100, 16);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), (Object[]) anyVararg())).willReturn(content);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), documentContentCache);
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, null, "digest", 0L);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(documentRepository.readContent(document, target)).isEqualTo(100);
+        assertThat(target.toByteArray()).isEqualTo(content);
+
+        target.reset();
+        assertThat(documentRepository.readContent(document, target, 10, 20)).isEqualTo(20);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 30));
+        verify(jdbcTemplate).queryForObject(anyString(), eq(byte[].class), (Object[]) anyVararg());
+    }
+
+    @Test
+    public void readContent_should_not_cache_content_which_ends_unexpectedly() throws Exception {
+        DocumentContentCache documentContentCache = new DocumentContentCache(1024, 100, 16);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), (Object[]) anyVararg())).willReturn(nextBytes(50));
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), documentContentCache);
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, null, "digest", 0L);
+
+        assertThat(documentRepository.readContent(document, new ByteArrayOutputStream())).isEqualTo(50);
+        assertThat(documentContentCache.get("1")).isNull();
+    }
+
+    @Test
+    public void deleteIfExists_should_invalidate_cached_content() throws Exception {
+        DocumentContentCache documentContentCache = new DocumentContentCache(1024, 100, 16);
+        givenCachedContent(documentContentCache, "1", nextBytes(10));
+
+        DocumentRepository documentRepository =
+            documentRepository(mock(JdbcTemplate.class), new DocumentMetadataCache(10, 60), documentContentCache);
+
+        documentRepository.deleteIfExists("1");
+        assertThat(documentContentCache.get("1")).isNull();
+    }
+
+    @Test
+    public void deleteAllModifiedBefore_should_invalidate_cached_documents() throws Exception {
+        DocumentMetadataCache documentMetadataCache = new DocumentMetadataCache(10, 60);
+        documentMetadataCache.put(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L));
+        documentMetadataCache.put(new Document("2", "test.txt", TEXT_PLAIN_VALUE, 100L));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenDeletedDocuments(jdbcTemplate, "1", null);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, documentMetadataCache, new DocumentContentCache(0, 0, 16));
+
+        assertThat(documentRepository.deleteAllModifiedBefore(LAST_MODIFIED, 10)).containsExactly("1");
+        assertThat(documentMetadataCache.get("1")).isNull();
+        assertThat(documentMetadataCache.get("2")).isNotNull();
+    }
+
+    @Test
+    public void save_should_store_small_content_inline() throws Exception {
+        byte[] content = "hello".getBytes("UTF-8");
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+
+        Document document = documentRepository.save(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 5L),
+            new ByteArrayInputStream(content));
+        assertThat(document.getContentOid()).isNull();
+        assertThat(document.getContentLength()).isEqualTo(5L);
+        assertThat(document.getContentDigest())
+            .isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+
+        verify(jdbcTemplate).update(anyString(), eq("1"), isNull(), eq(document.getContentDigest()), isNull(), eq(5L),
+            eq(TEXT_PLAIN_VALUE), isNull(), eq("test.txt"), eq(content), any(Timestamp.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void save_should_reference_stored_content_if_declared_digest_is_known() throws Exception {
+        byte[] content = nextBytes(100);
+        String digest = sha256().hashBytes(content).toString();
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(digest), eq("identity")))
+            .willReturn(singletonList(4711L));
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+
+        Document template = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L);
+        template.setContentDigest(digest);
+        Document document = documentRepository.save(template, new ByteArrayInputStream(content));
+        assertThat(document.getContentOid()).isEqualTo(4711L);
+        assertThat(document.getContentLength()).isEqualTo(100L);
+        assertThat(document.getContentDigest()).isEqualTo(digest);
+
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate).update(anyString(), eq("1"), eq(4711L), eq(digest), isNull(), eq(100L), eq(TEXT_PLAIN_VALUE),
+            isNull(), eq("test.txt"), isNull(), any(Timestamp.class));
+    }
+
+    @Test
+    public void save_should_reject_content_if_it_does_not_match_declared_digest() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+
+        Document template = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 5L);
+        template.setContentDigest("0000000000000000000000000000000000000000000000000000000000000000");
+        try {
+            documentRepository.save(template, new ByteArrayInputStream("hello".getBytes("UTF-8")));
+            fail("ContentDigestMismatchException expected!");
+        } catch (ContentDigestMismatchException e) {
+            assertThat(e.getActualDigest()).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        }
+        verify(jdbcTemplate, never()).update(anyString(), (Object[]) anyVararg());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void saveAll_should_insert_documents_in_batches() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+
+        List<DocumentSource> sources = newArrayList();
+        for (int i = 0; i < 5; i++) {
+            sources.add(new DocumentSource(new Document(String.valueOf(i), "test.txt", TEXT_PLAIN_VALUE, 1L),
+                new ByteArrayInputStream(new byte[] { (byte) i })));
+        }
+
+        List<Document> documents = documentRepository.saveAll(sources.iterator(), 2);
+        assertThat(documents).extracting(Document::getId).containsExactly("0", "1", "2", "3", "4");
+        assertThat(documents).extracting(Document::getContentLength).containsOnly(1L);
+
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass((Class) List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), inserts.capture());
+        assertThat(inserts.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    public void readContent_should_read_inline_content_through_a_single_query() throws Exception {
+        byte[] content = nextBytes(20);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq(11L), eq(20L), eq("1"))).willReturn(content);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, null, "digest", 0L);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(documentRepository.readContent(document, target, 10, 20)).isEqualTo(20);
+        assertThat(target.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    public void save_should_store_compressed_content_if_content_type_is_compressible() throws Exception {
+        byte[] content = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes("UTF-8");
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16), "gzip");
+
+        Document document = documentRepository.save(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 78L),
+            new ByteArrayInputStream(content));
+        assertThat(document.getContentLength()).isEqualTo(content.length);
+        assertThat(document.getContentEncoding()).isEqualTo("gzip");
+        assertThat(document.getEncodedContentLength()).isLessThan((long) content.length);
+
+        ArgumentCaptor<Object> arguments = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(anyString(), (Object[]) arguments.capture());
+        byte[] inlineContent = (byte[]) arguments.getAllValues().get(8);
+        assertThat(toByteArray(new GZIPInputStream(new ByteArrayInputStream(inlineContent)))).isEqualTo(content);
+    }
+
+    @Test
+    public void save_should_close_compressing_source_if_content_cannot_be_read() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream source = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        DocumentRepository documentRepository = documentRepository(mock(JdbcTemplate.class), new DocumentMetadataCache(10, 60),
+            new DocumentContentCache(0, 0, 16), "gzip");
+        try {
+            documentRepository.save(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 78L), source);
+            fail("IOException expected!");
+        } catch (IOException e) {
+            assertThat(closed.get()).isTrue();
+        }
+    }
+
+    @Test
+    public void readContent_should_decode_encoded_content() throws Exception {
+        byte[] content = nextBytes(100);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(encoded)) {
+            gzip.write(content);
+        }
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq(1L), eq((long) Integer.MAX_VALUE), eq("1")))
+            .willReturn(encoded.toByteArray());
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, null, "digest", 0L);
+        document.setContentEncoding("gzip");
+        document.setEncodedContentLength((long) encoded.size());
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(documentRepository.readContent(document, target, 10, 20)).isEqualTo(20);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 30));
+    }
+
+    @Test
+    public void readStoredContent_should_read_large_object_through_a_single_query() {
+        byte[] content = nextBytes(20);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq(4711L), eq(10L), eq(20))).willReturn(content);
+        DocumentRepository documentRepository =
+            documentRepository(jdbcTemplate, new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+        Document document = new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, "digest", 0L);
+
+        assertThat(documentRepository.readStoredContent(document, 10, 20)).isEqualTo(content);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readStoredContent_should_throw_exception_if_content_is_stored_inline() {
+        DocumentRepository documentRepository =
+            documentRepository(mock(JdbcTemplate.class), new DocumentMetadataCache(10, 60), new DocumentContentCache(0, 0, 16));
+        documentRepository.readStoredContent(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, null, "digest", 0L), 0, 20);
+    }
+
+    private static DocumentRepository documentRepository(JdbcTemplate jdbcTemplate, DocumentMetadataCache documentMetadataCache,
+        DocumentContentCache documentContentCache) {
+        return documentRepository(jdbcTemplate, documentMetadataCache, documentContentCache, null);
+    }
+
+    private static DocumentRepository documentRepository(JdbcTemplate jdbcTemplate, DocumentMetadataCache documentMetadataCache,
+        DocumentContentCache documentContentCache, String contentCompressionEncoding) {
+        return new DocumentRepository(jdbcTemplate, new BufferPool(128, 1), documentMetadataCache, documentContentCache,
+            new LargeObjectContentStorage(jdbcTemplate), new InlineContentStorage(jdbcTemplate, 64),
+            new ContentCompressionPolicy(singletonList(new GzipContentCodec()), contentCompressionEncoding,
+                singletonList("text/*")),
+            new DocumentMetrics());
+    }
+
+    private static void givenCachedContent(DocumentContentCache documentContentCache, String id, byte[] content)
+        throws Exception {
+        CachedContent cachedContent = documentContentCache.allocate(content.length);
+        cachedContent.asOutputStream().write(content);
+        documentContentCache.put(id, cachedContent);
+        cachedContent.release();
+    }
+
+    // Lets the delete statement return a single row with the given id and content oid.
+    private static void givenDeletedDocuments(JdbcTemplate jdbcTemplate, String id, Long contentOid) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        given(rs.getString("id")).willReturn(id);
+        given(rs.getLong("content")).willReturn(contentOid != null ? contentOid : 0L);
+        given(rs.wasNull()).willReturn(contentOid == null);
+
+        willAnswer(invocation -> {
+            invocation.getArgumentAt(1, RowCallbackHandler.class).processRow(rs);
+            return null;
+        }).given(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
 }
@@ -1,26 +1,30 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static java.util.Collections.emptyList;
 import static java.util.UUID.randomUUID;
 
 import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.ContentDispositionUtils.attachment;
+import static com.google.common.collect.Lists.newArrayList;
 import static org.apache.commons.lang3.RandomUtils.nextBytes;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.MediaType.ALL;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 import static org.springframework.http.MediaType.parseMediaType;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.sql.Blob;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.UUID;
 
@@ -30,7 +34,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
-import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DocumentResourceHttpMessageConverterTest {
@@ -77,108 +81,231 @@ public class DocumentResourceHttpMessageConverterTest {
         converter.write(null, null, null);
     }
 
-    @Test(expected = HttpMessageNotWritableException.class)
-    public void obtainDocument_should_throw_exception_if_document_resource_is_not_available() throws Exception {
-        String id = UUID.randomUUID().toString();
+    @Test
+    public void setHeaders_should_set_headers_matching_the_document_properties() throws Exception {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L);
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
+
+        DocumentResourceHttpMessageConverter.setHeaders(document, httpOutputMessage.getHeaders());
+        assertThat(httpHeaders.getContentLength()).isEqualTo(document.getContentLength());
+        assertThat(httpHeaders.getContentType()).isEqualTo(parseMediaType(document.getContentType()));
+        assertThat(httpHeaders.get(CONTENT_DISPOSITION)).containsExactly(attachment(document.getFilename()));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeContent_should_throw_exception_if_content_is_not_accessible() throws Exception {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+
+        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getBody()).willReturn(new ByteArrayOutputStream());
 
         DocumentRepository documentRepository = mock(DocumentRepository.class);
-        given(documentRepository.findOne(id)).willReturn(null);
+        given(documentRepository.readContent(document, httpOutputMessage.getBody())).willThrow(new SQLException());
 
-        DocumentResourceHttpMessageConverter.obtainDocument(new DocumentResource(id), documentRepository);
+        DocumentResourceHttpMessageConverter.writeContent(document, httpOutputMessage.getBody(), documentRepository);
     }
 
     @Test
-    public void obtainDocument_should_return_matching_document() throws Exception {
-        String id = randomUUID().toString();
-        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L);
+    public void writeContent_should_read_content_into_body() throws Exception {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+
+        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getBody()).willReturn(new ByteArrayOutputStream());
 
         DocumentRepository documentRepository = mock(DocumentRepository.class);
-        given(documentRepository.findOne(id)).willReturn(document);
 
-        assertThat(DocumentResourceHttpMessageConverter.obtainDocument(new DocumentResource(id), documentRepository))
-            .isEqualTo(document);
+        DocumentResourceHttpMessageConverter.writeContent(document, httpOutputMessage.getBody(), documentRepository);
+        verify(documentRepository).readContent(document, httpOutputMessage.getBody());
     }
 
     @Test
-    public void setHeaders_should_set_headers_matching_the_document_properties() throws Exception {
-        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L);
+    public void write_should_transfer_document_to_output_message() throws Exception {
+        byte[] content = nextBytes(100);
+
+        String id = UUID.randomUUID().toString();
+        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        given(documentRepository.readContent(eq(document), any(OutputStream.class))).willAnswer(invocation -> {
+            ((OutputStream) invocation.getArguments()[1]).write(content);
+            return (long) content.length;
+        });
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            HttpHeaders httpHeaders = new HttpHeaders();
+            HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+            given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
+            given(httpOutputMessage.getBody()).willReturn(outputStream);
+
+            DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+            converter.write(new DocumentResource(document), null, httpOutputMessage);
+
+            assertThat(outputStream.toByteArray()).isEqualTo(content);
+            verify(documentRepository).readContent(document, outputStream);
+            verifyNoMoreInteractions(documentRepository);
+
+            assertThat(httpHeaders.getContentLength()).isEqualTo(document.getContentLength());
+            assertThat(httpHeaders.getContentType()).isEqualTo(parseMediaType(document.getContentType()));
+            assertThat(httpHeaders.get(CONTENT_DISPOSITION)).containsExactly(attachment(document.getFilename()));
+        }
+    }
+
+    @Test
+    public void prepare_should_set_headers_without_touching_content() throws Exception {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
 
         HttpHeaders httpHeaders = new HttpHeaders();
-        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
-        given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        StreamingResponseBody body = converter.prepare(new DocumentResource(document), httpHeaders);
 
-        DocumentResourceHttpMessageConverter.setHeaders(document, httpOutputMessage);
+        assertThat(body).isNotNull();
         assertThat(httpHeaders.getContentLength()).isEqualTo(document.getContentLength());
         assertThat(httpHeaders.getContentType()).isEqualTo(parseMediaType(document.getContentType()));
-        assertThat(httpHeaders.get(CONTENT_DISPOSITION)).containsExactly(attachment(document.getFilename()));
+        verifyNoMoreInteractions(documentRepository);
     }
 
-    @Test(expected = IOException.class)
-    public void writeContent_should_throw_exception_if_content_is_not_accessible() throws Exception {
-        Blob blob = mock(Blob.class);
-        given(blob.getBinaryStream()).willThrow(new SQLException());
+    @Test
+    public void prepareNonBlocking_should_return_requested_range_of_large_object() {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
 
-        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, blob);
-        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        HttpHeaders httpHeaders = new HttpHeaders();
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        NonBlockingContent content =
+            converter.prepareNonBlocking(new DocumentResource(document, newArrayList(new ContentRange(10, 19))), httpHeaders);
 
-        DocumentResourceHttpMessageConverter.writeContent(document, httpOutputMessage);
+        assertThat(content).isEqualTo(new NonBlockingContent(document, 10, 10));
+        assertThat(httpHeaders.getContentLength()).isEqualTo(10);
+        assertThat(httpHeaders.getFirst(CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        verifyNoMoreInteractions(documentRepository);
     }
 
-    @Test(expected = IOException.class)
-    public void writeContent_should_throw_exception_if_content_is_not_freeable() throws Exception {
-        Blob blob = mock(Blob.class);
-        doReturn(new ByteArrayInputStream(new byte[0])).when(blob).getBinaryStream();
-        doThrow(new SQLException()).when(blob).free();
+    @Test
+    public void prepareNonBlocking_should_return_encoded_content_as_stored() {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        document.setContentEncoding("gzip");
+        document.setEncodedContentLength(40L);
 
-        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, blob);
-        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        HttpHeaders httpHeaders = new HttpHeaders();
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(mock(DocumentRepository.class));
+        NonBlockingContent content = converter.prepareNonBlocking(new DocumentResource(document, emptyList(), true), httpHeaders);
+
+        assertThat(content).isEqualTo(new NonBlockingContent(document, 0, 40));
+        assertThat(httpHeaders.getContentLength()).isEqualTo(40);
+        assertThat(httpHeaders.getFirst(CONTENT_ENCODING)).isEqualTo("gzip");
+    }
+
+    @Test
+    public void prepareNonBlocking_should_return_null_if_content_needs_to_be_decoded() {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        document.setContentEncoding("gzip");
+        document.setEncodedContentLength(40L);
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(mock(DocumentRepository.class));
+
+        assertThat(converter.prepareNonBlocking(new DocumentResource(document), httpHeaders)).isNull();
+        assertThat(httpHeaders).isEmpty();
+    }
+
+    @Test
+    public void prepareNonBlocking_should_return_null_if_content_is_stored_inline() {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L);
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(mock(DocumentRepository.class));
+        assertThat(converter.prepareNonBlocking(new DocumentResource(document), new HttpHeaders())).isNull();
+    }
+
+    @Test
+    public void transfer_should_write_prepared_content_to_target() throws Exception {
+        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        StreamingResponseBody body =
+            converter.prepare(new DocumentResource(document, newArrayList(new ContentRange(10, 19))), new HttpHeaders());
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        converter.transfer(body, target);
 
-        DocumentResourceHttpMessageConverter.writeContent(document, httpOutputMessage);
+        verify(documentRepository).readContent(document, target, 10, 10);
+        verifyNoMoreInteractions(documentRepository);
     }
 
     @Test
-    public void writeContent_should_free_content() throws Exception {
-        Blob blob = mock(Blob.class);
-        given(blob.getBinaryStream()).willReturn(new ByteArrayInputStream(new byte[0]));
+    public void write_should_transfer_encoded_content_to_output_message() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
+        document.setContentEncoding("gzip");
+        document.setEncodedContentLength(40L);
 
-        Document document = new Document(randomUUID().toString(), "test.txt", TEXT_PLAIN_VALUE, 100L, blob);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
 
+        HttpHeaders httpHeaders = new HttpHeaders();
         HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
         given(httpOutputMessage.getBody()).willReturn(new ByteArrayOutputStream());
 
-        DocumentResourceHttpMessageConverter.writeContent(document, httpOutputMessage);
-        verify(blob).free();
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        converter.write(new DocumentResource(document, emptyList(), true), null, httpOutputMessage);
+
+        verify(documentRepository).readEncodedContent(document, httpOutputMessage.getBody());
+        verifyNoMoreInteractions(documentRepository);
+        assertThat(httpHeaders.getContentLength()).isEqualTo(40);
+        assertThat(httpHeaders.getFirst(CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(httpHeaders.getContentType()).isEqualTo(parseMediaType(document.getContentType()));
     }
 
     @Test
-    public void write_should_transfer_document_to_output_message() throws Exception {
-        byte[] content = nextBytes(100);
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(content)) {
-            Blob blob = mock(Blob.class);
-            given(blob.getBinaryStream()).willReturn(inputStream);
+    public void write_should_transfer_requested_range_to_output_message() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
 
-            String id = UUID.randomUUID().toString();
-            Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, blob);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
 
-            DocumentRepository documentRepository = mock(DocumentRepository.class);
-            given(documentRepository.findOne(id)).willReturn(document);
+        HttpHeaders httpHeaders = new HttpHeaders();
+        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
+        given(httpOutputMessage.getBody()).willReturn(new ByteArrayOutputStream());
 
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                HttpHeaders httpHeaders = new HttpHeaders();
-                HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
-                given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
-                given(httpOutputMessage.getBody()).willReturn(outputStream);
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        converter.write(new DocumentResource(document, newArrayList(new ContentRange(10, 19))), null, httpOutputMessage);
 
-                DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
-                converter.write(new DocumentResource(id), null, httpOutputMessage);
+        verify(documentRepository).readContent(document, httpOutputMessage.getBody(), 10, 10);
+        assertThat(httpHeaders.getContentLength()).isEqualTo(10);
+        assertThat(httpHeaders.getFirst(CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+    }
+
+    @Test
+    public void write_should_transfer_requested_ranges_as_multipart_to_output_message() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Document document = new Document(id, "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L);
 
-                assertThat(httpOutputMessage.getBody()).isInstanceOf(ByteArrayOutputStream.class);
-                assertThat(((ByteArrayOutputStream) httpOutputMessage.getBody()).toByteArray()).isEqualTo(content);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
 
-                assertThat(httpHeaders.getContentLength()).isEqualTo(document.getContentLength());
-                assertThat(httpHeaders.getContentType()).isEqualTo(parseMediaType(document.getContentType()));
-                assertThat(httpHeaders.get(CONTENT_DISPOSITION)).containsExactly(attachment(document.getFilename()));
-            }
-        }
+        HttpHeaders httpHeaders = new HttpHeaders();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpOutputMessage httpOutputMessage = mock(HttpOutputMessage.class);
+        given(httpOutputMessage.getHeaders()).willReturn(httpHeaders);
+        given(httpOutputMessage.getBody()).willReturn(outputStream);
+
+        DocumentResourceHttpMessageConverter converter = new DocumentResourceHttpMessageConverter(documentRepository);
+        converter.write(new DocumentResource(document, newArrayList(new ContentRange(0, 9), new ContentRange(90, 99))), null,
+            httpOutputMessage);
+
+        verify(documentRepository).readContent(document, outputStream, 0, 10);
+        verify(documentRepository).readContent(document, outputStream, 90, 10);
+
+        String boundary = httpHeaders.getContentType().getParameter("boundary");
+        assertThat(httpHeaders.getContentType().toString()).startsWith("multipart/byteranges");
+        assertThat(httpHeaders.getContentLength()).isEqualTo(-1);
+        assertThat(outputStream.toString("US-ASCII")).isEqualTo("\r\n--" + boundary + "\r\n" //
+            + "Content-Type: text/plain\r\nContent-Range: bytes 0-9/100\r\n\r\n" //
+            + "\r\n--" + boundary + "\r\n" //
+            + "Content-Type: text/plain\r\nContent-Range: bytes 90-99/100\r\n\r\n" //
+            + "\r\n--" + boundary + "--\r\n");
     }
 }
@@ -0,0 +1,136 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentSourceUtils.fromMultipartFiles;
+import static com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling.DocumentSourceUtils.fromZipArchive;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+public class DocumentSourceUtilsTest {
+
+    @Test
+    public void fromMultipartFiles_should_return_source_per_file() throws Exception {
+        Iterator<DocumentSource> sources =
+            fromMultipartFiles(newArrayList(new MockMultipartFile("sources", "a.txt", TEXT_PLAIN_VALUE, "a".getBytes()),
+                new MockMultipartFile("sources", "b.txt", TEXT_PLAIN_VALUE, "bb".getBytes())));
+
+        assertSource(sources.next(), "a.txt", TEXT_PLAIN_VALUE, "a");
+        assertSource(sources.next(), "b.txt", TEXT_PLAIN_VALUE, "bb");
+        assertThat(sources.hasNext()).isFalse();
+    }
+
+    @Test
+    public void fromZipArchive_should_return_source_per_file_and_skip_directories() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.putNextEntry(new ZipEntry("dir/a.txt"));
+            zip.write("a".getBytes());
+            zip.putNextEntry(new ZipEntry("b"));
+            zip.write("bb".getBytes());
+        }
+
+        Iterator<DocumentSource> sources = fromZipArchive(zip(archive), -1, -1, -1);
+
+        assertSource(sources.next(), "a.txt", TEXT_PLAIN_VALUE, "a");
+        assertSource(sources.next(), "b", APPLICATION_OCTET_STREAM_VALUE, "bb");
+        assertThat(sources.hasNext()).isFalse();
+    }
+
+    @Test
+    public void fromZipArchive_should_skip_the_rest_of_an_entry_which_is_closed_before_it_is_read_completely() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("aaaa".getBytes());
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("b".getBytes());
+        }
+
+        Iterator<DocumentSource> sources = fromZipArchive(zip(archive), -1, -1, -1);
+
+        try (InputStream content = sources.next().getContent()) {
+            assertThat(content.read()).isEqualTo('a');
+        }
+        assertSource(sources.next(), "b.txt", TEXT_PLAIN_VALUE, "b");
+    }
+
+    @Test(expected = ContentTooLargeException.class)
+    public void fromZipArchive_should_throw_exception_if_entry_exceeds_maximum_entry_size() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("aaaa".getBytes());
+        }
+
+        toByteArray(fromZipArchive(zip(archive), 3, -1, -1).next().getContent());
+    }
+
+    @Test
+    public void fromZipArchive_should_throw_exception_if_entries_exceed_maximum_size() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("aa".getBytes());
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("bb".getBytes());
+        }
+
+        Iterator<DocumentSource> sources = fromZipArchive(zip(archive), 2, 3, -1);
+        assertSource(sources.next(), "a.txt", TEXT_PLAIN_VALUE, "aa");
+        try {
+            toByteArray(sources.next().getContent());
+            fail("The archive should have been rejected!");
+        } catch (ContentTooLargeException e) {
+            assertThat(e.getMessage()).contains("3 bytes");
+        }
+    }
+
+    @Test
+    public void fromZipArchive_should_throw_exception_if_archive_exceeds_maximum_entries() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.putNextEntry(new ZipEntry("dir/a.txt"));
+            zip.write("a".getBytes());
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("b".getBytes());
+        }
+
+        Iterator<DocumentSource> sources = fromZipArchive(zip(archive), -1, -1, 2);
+        assertSource(sources.next(), "a.txt", TEXT_PLAIN_VALUE, "a");
+        try {
+            sources.next();
+            fail("The archive should have been rejected!");
+        } catch (ContentTooLargeException e) {
+            assertThat(e.getMessage()).contains("2 entries");
+        }
+    }
+
+    private static ZipInputStream zip(ByteArrayOutputStream archive) {
+        return new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()));
+    }
+
+    private static void assertSource(DocumentSource source, String filename, String contentType, String content)
+        throws Exception {
+        assertThat(source.getTemplate().getFilename()).isEqualTo(filename);
+        assertThat(source.getTemplate().getContentType()).isEqualTo(contentType);
+        try (InputStream stream = source.getContent()) {
+            assertThat(new String(toByteArray(stream))).isEqualTo(content);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
 import org.junit.Test;
 
 public class DocumentTest {
@@ -8,4 +11,14 @@ public class DocumentTest {
     public void ctor_should_throw_exception_if_input_is_null() {
         new Document(null, null, null, null);
     }
+
+    @Test
+    public void getETag_should_return_null_if_content_digest_is_not_known() {
+        assertThat(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L).getETag()).isNull();
+    }
+
+    @Test
+    public void getETag_should_return_quoted_content_digest() {
+        assertThat(new Document("1", "test.txt", TEXT_PLAIN_VALUE, 100L, 4711L, "abc", 0L).getETag()).isEqualTo("\"abc\"");
+    }
 }
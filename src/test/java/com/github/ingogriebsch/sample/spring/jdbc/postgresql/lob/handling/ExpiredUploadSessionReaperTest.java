@@ -0,0 +1,30 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.System.currentTimeMillis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExpiredUploadSessionReaperTest {
+
+    @Test
+    public void reap_should_delete_sessions_created_before_expiration_time() {
+        UploadSessionRepository uploadSessionRepository = mock(UploadSessionRepository.class);
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setUploadSessionExpireAfterSeconds(60);
+
+        long now = currentTimeMillis();
+        new ExpiredUploadSessionReaper(uploadSessionRepository, documentProperties).reap();
+
+        ArgumentCaptor<Long> created = ArgumentCaptor.forClass(Long.class);
+        verify(uploadSessionRepository).deleteCreatedBefore(created.capture());
+        assertThat(created.getValue()).isBetween(now - 60000, currentTimeMillis() - 60000);
+    }
+}
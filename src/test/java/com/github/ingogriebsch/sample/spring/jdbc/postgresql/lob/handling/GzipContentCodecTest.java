@@ -0,0 +1,47 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class GzipContentCodecTest {
+
+    private final GzipContentCodec codec = new GzipContentCodec();
+
+    @Test
+    public void encode_should_return_stream_readable_by_gzip_input_stream() throws Exception {
+        byte[] content = nextBytes(100000);
+        byte[] encoded = toByteArray(codec.encode(new ByteArrayInputStream(content)));
+        assertThat(toByteArray(new GZIPInputStream(new ByteArrayInputStream(encoded)))).isEqualTo(content);
+    }
+
+    @Test
+    public void encode_should_compress_repetitive_content() throws Exception {
+        byte[] content = new byte[100000];
+        byte[] encoded = toByteArray(codec.encode(new ByteArrayInputStream(content)));
+        assertThat(encoded.length).isLessThan(content.length / 100);
+    }
+
+    @Test
+    public void encode_should_handle_empty_content() throws Exception {
+        byte[] encoded = toByteArray(codec.encode(new ByteArrayInputStream(new byte[0])));
+        assertThat(toByteArray(new GZIPInputStream(new ByteArrayInputStream(encoded)))).isEmpty();
+    }
+
+    @Test
+    public void decode_should_return_content_written_by_gzip_output_stream() throws Exception {
+        byte[] content = nextBytes(10000);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(encoded)) {
+            gzip.write(content);
+        }
+        assertThat(toByteArray(codec.decode(new ByteArrayInputStream(encoded.toByteArray())))).isEqualTo(content);
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.lang.Math.max;
+
+import static org.apache.commons.lang3.RandomUtils.nextBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.postgresql.largeobject.LargeObject;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LargeObjectUtilsTest {
+
+    @Test(expected = NullPointerException.class)
+    public void copy_should_throw_exception_if_input_is_null() throws Exception {
+        LargeObjectUtils.copy((InputStream) null, null, null);
+    }
+
+    @Test
+    public void copy_should_not_write_anything_if_source_is_empty() throws Exception {
+        LargeObject largeObject = mock(LargeObject.class);
+        assertThat(LargeObjectUtils.copy(new ByteArrayInputStream(new byte[0]), largeObject, new byte[16])).isEqualTo(0);
+        verifyZeroInteractions(largeObject);
+    }
+
+    @Test
+    public void copy_should_write_source_in_chunks_of_buffer_size() throws Exception {
+        byte[] content = nextBytes(100);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        LargeObject largeObject = mock(LargeObject.class);
+        doAnswer(invocation -> {
+            written.write((byte[]) invocation.getArguments()[0], (int) invocation.getArguments()[1],
+                (int) invocation.getArguments()[2]);
+            return null;
+        }).when(largeObject).write(any(byte[].class), eq(0), anyInt());
+
+        assertThat(LargeObjectUtils.copy(new ByteArrayInputStream(content), largeObject, new byte[16]))
+            .isEqualTo(content.length);
+        assertThat(written.toByteArray()).isEqualTo(content);
+        verify(largeObject, times(7)).write(any(byte[].class), eq(0), anyInt());
+    }
+
+    @Test
+    public void copy_should_read_large_object_into_given_buffer_until_it_is_exhausted() throws Exception {
+        byte[] content = nextBytes(100);
+        LargeObject largeObject = largeObject(content);
+        byte[] buffer = new byte[16];
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(LargeObjectUtils.copy(largeObject, target, buffer)).isEqualTo(content.length);
+        assertThat(target.toByteArray()).isEqualTo(content);
+        verify(largeObject, times(8)).read(buffer, 0, 16);
+        verify(largeObject, never()).read(anyInt());
+    }
+
+    @Test
+    public void copy_should_read_no_more_than_the_given_length() throws Exception {
+        byte[] content = nextBytes(100);
+        LargeObject largeObject = largeObject(content);
+        byte[] buffer = new byte[16];
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertThat(LargeObjectUtils.copy(largeObject, target, buffer, 20)).isEqualTo(20);
+        assertThat(target.toByteArray()).isEqualTo(Arrays.copyOf(content, 20));
+        verify(largeObject).read(buffer, 0, 16);
+        verify(largeObject).read(buffer, 0, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void copy_should_throw_exception_if_buffer_is_empty() throws Exception {
+        LargeObjectUtils.copy(largeObject(nextBytes(10)), new ByteArrayOutputStream(), new byte[0]);
+    }
+
+    // Hands out the given content in chunks like the driver does, i.e. an empty chunk signals the end.
+    private static LargeObject largeObject(byte[] content) throws Exception {
+        ByteArrayInputStream remaining = new ByteArrayInputStream(content);
+        LargeObject largeObject = mock(LargeObject.class);
+        doAnswer(invocation -> max(0, remaining.read((byte[]) invocation.getArguments()[0], (int) invocation.getArguments()[1],
+            (int) invocation.getArguments()[2]))).when(largeObject).read(any(byte[].class), anyInt(), anyInt());
+        return largeObject;
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.http.ResponseEntity.status;
+import static org.springframework.web.context.request.async.WebAsyncUtils.getAsyncManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.junit.Test;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class NonBlockingContentReturnValueHandlerTest {
+
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+    private final Queue<Runnable> downloads = new ArrayDeque<>();
+
+    private final NonBlockingContentReturnValueHandler handler =
+        new NonBlockingContentReturnValueHandler(documentRepository, downloads::add, 4, 60000);
+
+    private final Document document = new Document("1", "test.bin", APPLICATION_OCTET_STREAM_VALUE, 100L, 4711L);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private final RecordingOutputStream output = new RecordingOutputStream();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse() {
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return output;
+        }
+    };
+
+    @Test
+    public void isAsyncReturnValue_should_return_true_for_asynchronous_bodies() {
+        assertThat(handler.isAsyncReturnValue(ok(new NonBlockingContent(document, 0, 100)), null)).isTrue();
+        assertThat(handler.isAsyncReturnValue(ok((StreamingResponseBody) target -> {
+        }), null)).isTrue();
+        assertThat(handler.isAsyncReturnValue(ok("content"), null)).isFalse();
+    }
+
+    @Test
+    public void handleReturnValue_should_transfer_content_chunk_by_chunk() throws Exception {
+        given(documentRepository.readStoredContent(document, 10, 4)).willReturn("abcd".getBytes(US_ASCII));
+        given(documentRepository.readStoredContent(document, 14, 2)).willReturn("ef".getBytes(US_ASCII));
+
+        ModelAndViewContainer mavContainer = handle(10, 6);
+        assertThat(mavContainer.isRequestHandled()).isTrue();
+        assertThat(response.getStatus()).isEqualTo(PARTIAL_CONTENT.value());
+        assertThat(response.getHeader(CONTENT_LENGTH)).isEqualTo("6");
+        assertThat(request.isAsyncStarted()).isTrue();
+
+        output.writeListener.onWritePossible();
+        runDownloads();
+        assertThat(output.content.toString("US-ASCII")).isEqualTo("abcdef");
+        assertThat(request.isAsyncStarted()).isFalse();
+    }
+
+    @Test
+    public void handleReturnValue_should_read_content_on_download_thread() throws Exception {
+        given(documentRepository.readStoredContent(document, 0, 4)).willReturn("abcd".getBytes(US_ASCII));
+        given(documentRepository.readStoredContent(document, 4, 2)).willReturn("ef".getBytes(US_ASCII));
+        handle(0, 6);
+
+        output.writeListener.onWritePossible();
+        verifyZeroInteractions(documentRepository);
+        assertThat(downloads).hasSize(1);
+
+        // The next chunk is read while the current one is written.
+        downloads.poll().run();
+        assertThat(output.content.toString("US-ASCII")).isEqualTo("abcd");
+        assertThat(downloads).hasSize(1);
+
+        output.ready = false;
+        downloads.poll().run();
+        assertThat(output.content.toString("US-ASCII")).isEqualTo("abcd");
+
+        output.ready = true;
+        output.writeListener.onWritePossible();
+        assertThat(output.content.toString("US-ASCII")).isEqualTo("abcdef");
+        assertThat(request.isAsyncStarted()).isFalse();
+    }
+
+    @Test
+    public void handleReturnValue_should_transfer_content_if_it_is_read_on_writing_thread() throws Exception {
+        given(documentRepository.readStoredContent(document, 0, 4)).willReturn("abcd".getBytes(US_ASCII));
+        given(documentRepository.readStoredContent(document, 4, 4)).willReturn("efgh".getBytes(US_ASCII));
+        given(documentRepository.readStoredContent(document, 8, 1)).willReturn("i".getBytes(US_ASCII));
+        NonBlockingContentReturnValueHandler handler =
+            new NonBlockingContentReturnValueHandler(documentRepository, Runnable::run, 4, 60000);
+        handle(handler, 0, 9);
+
+        output.writeListener.onWritePossible();
+        assertThat(output.content.toString("US-ASCII")).isEqualTo("abcdefghi");
+        assertThat(request.isAsyncStarted()).isFalse();
+    }
+
+    @Test
+    public void handleReturnValue_should_not_read_content_until_client_is_ready() throws Exception {
+        handle(0, 100);
+        output.ready = false;
+
+        output.writeListener.onWritePossible();
+        assertThat(downloads).isEmpty();
+        assertThat(request.isAsyncStarted()).isTrue();
+    }
+
+    @Test
+    public void handleReturnValue_should_dispatch_failure_if_content_cannot_be_read() throws Exception {
+        DataRetrievalFailureException failure = new DataRetrievalFailureException("test");
+        given(documentRepository.readStoredContent(document, 0, 4)).willThrow(failure);
+
+        handle(0, 100);
+        output.writeListener.onWritePossible();
+        runDownloads();
+        assertThat(output.content.size()).isZero();
+        assertThat(getAsyncManager(request).getConcurrentResult()).isInstanceOf(IOException.class);
+        assertThat(((Throwable) getAsyncManager(request).getConcurrentResult()).getCause()).isSameAs(failure);
+    }
+
+    @Test
+    public void handleReturnValue_should_dispatch_failure_if_content_ends_unexpectedly() throws Exception {
+        given(documentRepository.readStoredContent(document, 0, 4)).willReturn("ab".getBytes(US_ASCII));
+
+        handle(0, 100);
+        output.writeListener.onWritePossible();
+        runDownloads();
+        assertThat(output.content.size()).isZero();
+        assertThat(getAsyncManager(request).getConcurrentResult()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void handleReturnValue_should_dispatch_failure_if_content_cannot_be_written() throws Exception {
+        given(documentRepository.readStoredContent(document, 0, 4)).willReturn("abcd".getBytes(US_ASCII));
+        NonBlockingContentReturnValueHandler handler =
+            new NonBlockingContentReturnValueHandler(documentRepository, downloads::add, 4, -1);
+
+        handle(handler, 0, 100);
+        output.writeListener.onWritePossible();
+        downloads.poll().run();
+        assertThat(output.content.size()).isZero();
+        assertThat(getAsyncManager(request).getConcurrentResult()).isInstanceOf(IOException.class);
+
+        // The chunks which are read afterwards are dropped.
+        runDownloads();
+        output.writeListener.onWritePossible();
+        assertThat(output.content.size()).isZero();
+    }
+
+    private void runDownloads() {
+        Runnable download;
+        while ((download = downloads.poll()) != null) {
+            download.run();
+        }
+    }
+
+    private ModelAndViewContainer handle(long offset, long length) throws Exception {
+        return handle(handler, offset, length);
+    }
+
+    private ModelAndViewContainer handle(NonBlockingContentReturnValueHandler handler, long offset, long length)
+        throws Exception {
+        request.setAsyncSupported(true);
+        getAsyncManager(request).setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        ModelAndViewContainer mavContainer = new ModelAndViewContainer();
+        handler.handleReturnValue(
+            status(PARTIAL_CONTENT).header(CONTENT_LENGTH, "" + length).body(new NonBlockingContent(document, offset, length)),
+            null, mavContainer, new ServletWebRequest(request, response));
+        return mavContainer;
+    }
+
+    private static class RecordingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        private boolean ready = true;
+
+        private WriteListener writeListener;
+
+        @Override
+        public void write(int b) {
+            content.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.writeListener = writeListener;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.Collections.singletonList;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrphanedContentReaperTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reap_should_unlink_orphaned_content_in_batches() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), (Object[]) anyVararg())).willReturn(true);
+        given(jdbcTemplate.queryForList(anyString(), eq(Long.class), (Object[]) anyVararg()))
+            .willReturn(newArrayList(1L, 2L), singletonList(3L));
+        LargeObjectContentStorage largeObjectContentStorage = mock(LargeObjectContentStorage.class);
+        given(largeObjectContentStorage.unlink(anyLong())).willReturn(10L);
+
+        OrphanedContentReaper reaper = orphanedContentReaper(jdbcTemplate, largeObjectContentStorage);
+        reaper.reap();
+
+        verify(largeObjectContentStorage).unlink(1L);
+        verify(largeObjectContentStorage).unlink(2L);
+        verify(largeObjectContentStorage).unlink(3L);
+        assertThat(reaper.metrics()).extracting("name", "value").containsExactly(
+            tuple("content.orphaned.reclaimed.objects", 3L), tuple("content.orphaned.reclaimed.bytes", 30L));
+    }
+
+    @Test
+    public void reap_should_not_unlink_anything_if_another_reaper_is_running() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), (Object[]) anyVararg())).willReturn(false);
+        LargeObjectContentStorage largeObjectContentStorage = mock(LargeObjectContentStorage.class);
+
+        OrphanedContentReaper reaper = orphanedContentReaper(jdbcTemplate, largeObjectContentStorage);
+        reaper.reap();
+
+        verify(largeObjectContentStorage, never()).unlink(anyLong());
+        assertThat(reaper.metrics()).extracting("value").containsExactly(0L, 0L);
+    }
+
+    private static OrphanedContentReaper orphanedContentReaper(JdbcTemplate jdbcTemplate,
+        LargeObjectContentStorage largeObjectContentStorage) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        given(transactionManager.getTransaction(any(TransactionDefinition.class))).willReturn(new SimpleTransactionStatus());
+
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setOrphanedContentReaperBatchSize(2);
+        documentProperties.setOrphanedContentReaperPauseMillis(0);
+        return new OrphanedContentReaper(jdbcTemplate, new TransactionTemplate(transactionManager), largeObjectContentStorage,
+            documentProperties);
+    }
+}
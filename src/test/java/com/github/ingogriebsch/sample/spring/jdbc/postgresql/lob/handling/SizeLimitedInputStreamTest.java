@@ -0,0 +1,34 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+public class SizeLimitedInputStreamTest {
+
+    @Test(expected = NullPointerException.class)
+    public void ctor_should_throw_exception_if_input_is_null() {
+        new SizeLimitedInputStream(null, 1000);
+    }
+
+    @Test
+    public void read_should_pass_data_if_size_limit_is_not_exceeded() throws Exception {
+        try (SizeLimitedInputStream in = new SizeLimitedInputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), 3)) {
+            assertThat(in.read()).isEqualTo(1);
+            assertThat(toByteArray(in)).containsExactly(2, 3);
+        }
+    }
+
+    @Test(expected = ContentTooLargeException.class)
+    public void read_should_throw_exception_if_size_limit_is_exceeded() throws Exception {
+        toByteArray(new SizeLimitedInputStream(new ByteArrayInputStream(new byte[4]), 3));
+    }
+
+    @Test(expected = ContentTooLargeException.class)
+    public void skip_should_throw_exception_if_size_limit_is_exceeded() throws Exception {
+        new SizeLimitedInputStream(new ByteArrayInputStream(new byte[4]), 3).skip(4);
+    }
+}
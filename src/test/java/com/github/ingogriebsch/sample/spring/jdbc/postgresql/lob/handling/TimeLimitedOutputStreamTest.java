@@ -0,0 +1,33 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TimeLimitedOutputStreamTest {
+
+    @Test(expected = NullPointerException.class)
+    public void ctor_should_throw_exception_if_input_is_null() {
+        new TimeLimitedOutputStream(null, 1000);
+    }
+
+    @Test
+    public void write_should_pass_data_if_time_limit_is_not_exceeded() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (TimeLimitedOutputStream out = new TimeLimitedOutputStream(target, 60000)) {
+            out.write(1);
+            out.write(new byte[] { 2, 3, 4 }, 1, 2);
+        }
+        assertThat(target.toByteArray()).containsExactly(1, 3, 4);
+    }
+
+    @Test(expected = IOException.class)
+    public void write_should_throw_exception_if_time_limit_is_exceeded() throws Exception {
+        TimeLimitedOutputStream out = new TimeLimitedOutputStream(new ByteArrayOutputStream(), 1);
+        Thread.sleep(10);
+        out.write(new byte[] { 1 });
+    }
+}
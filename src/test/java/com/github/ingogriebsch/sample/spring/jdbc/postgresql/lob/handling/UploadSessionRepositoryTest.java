@@ -0,0 +1,186 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UploadSessionRepositoryTest {
+
+    @Test(expected = NullPointerException.class)
+    public void ctor_should_throw_exception_if_input_is_null() {
+        new UploadSessionRepository(null, null, null);
+    }
+
+    @Test
+    public void create_should_return_session_without_chunks() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        UploadSession session =
+            uploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class)).create("a.txt", TEXT_PLAIN_VALUE, 10L);
+
+        assertThat(session.getId()).isNotNull();
+        assertThat(session.getContentLength()).isEqualTo(10L);
+        assertThat(session.getChunks()).isEmpty();
+        verify(jdbcTemplate).update(anyString(), eq(session.getId()), eq(10L), eq(TEXT_PLAIN_VALUE), any(), eq("a.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void saveChunk_should_throw_exception_if_index_is_negative() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        uploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class)).saveChunk("1", -1,
+            new ByteArrayInputStream(new byte[1]), 1);
+    }
+
+    @Test
+    public void saveChunk_should_return_false_if_session_is_ended_while_chunk_is_stored() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("1"), eq(0))).willReturn(0L);
+        given(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+            .willThrow(new DataIntegrityViolationException("violates foreign key constraint"));
+
+        assertThat(uploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class)).saveChunk("1", 0,
+            new ByteArrayInputStream(new byte[1]), 1)).isFalse();
+    }
+
+    @Test
+    public void saveChunk_should_throw_exception_if_staged_chunks_exceed_maximum_size() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("1"), eq(1))).willReturn(8L);
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setUploadSessionMaxSize(10);
+
+        try {
+            new UploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class), documentProperties).saveChunk("1", 1,
+                new ByteArrayInputStream(new byte[3]), 3);
+            fail("The chunk should not have been stored!");
+        } catch (ContentTooLargeException e) {
+            verify(jdbcTemplate, never()).update(anyString(), any(PreparedStatementSetter.class));
+        }
+    }
+
+    @Test
+    public void saveChunk_should_store_chunk_if_staged_chunks_do_not_exceed_maximum_size() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("1"), eq(1))).willReturn(7L);
+        given(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).willReturn(1);
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setUploadSessionMaxSize(10);
+
+        assertThat(new UploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class), documentProperties).saveChunk("1", 1,
+            new ByteArrayInputStream(new byte[3]), 3)).isTrue();
+    }
+
+    @Test
+    public void commit_should_return_null_if_session_is_not_known() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        givenSession(jdbcTemplate);
+
+        assertThat(uploadSessionRepository(jdbcTemplate, documentRepository).commit("1")).isNull();
+        verifyZeroInteractions(documentRepository);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commit_should_throw_exception_if_chunk_is_missing() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenSession(jdbcTemplate, new UploadSession("1", "a.txt", TEXT_PLAIN_VALUE, null,
+            newArrayList(new UploadChunk(0, 5), new UploadChunk(2, 5))));
+
+        uploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class)).commit("1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commit_should_throw_exception_if_chunks_do_not_add_up_to_announced_length() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenSession(jdbcTemplate,
+            new UploadSession("1", "a.txt", TEXT_PLAIN_VALUE, 11L, newArrayList(new UploadChunk(0, 5), new UploadChunk(1, 5))));
+
+        uploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class)).commit("1");
+    }
+
+    @Test(expected = ContentTooLargeException.class)
+    public void commit_should_throw_exception_if_chunks_exceed_maximum_size() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenSession(jdbcTemplate,
+            new UploadSession("1", "a.txt", TEXT_PLAIN_VALUE, null, newArrayList(new UploadChunk(0, 5), new UploadChunk(1, 6))));
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setUploadSessionMaxSize(10);
+
+        new UploadSessionRepository(jdbcTemplate, mock(DocumentRepository.class), documentProperties).commit("1");
+    }
+
+    @Test
+    public void commit_should_save_chunks_in_order_of_their_indexes_and_delete_session() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenSession(jdbcTemplate,
+            new UploadSession("1", "a.txt", TEXT_PLAIN_VALUE, 10L, newArrayList(new UploadChunk(0, 5), new UploadChunk(1, 5))));
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq("1"), eq(0))).willReturn("hello".getBytes(UTF_8));
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq("1"), eq(1))).willReturn("world".getBytes(UTF_8));
+
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        StringBuilder content = new StringBuilder();
+        willAnswer(invocation -> {
+            content.append(new String(toByteArray(invocation.getArgumentAt(1, InputStream.class)), UTF_8));
+            return invocation.getArgumentAt(0, Document.class);
+        }).given(documentRepository).save(any(), any());
+
+        Document document = uploadSessionRepository(jdbcTemplate, documentRepository).commit("1");
+        assertThat(document.getFilename()).isEqualTo("a.txt");
+        assertThat(document.getContentLength()).isEqualTo(10L);
+        assertThat(content.toString()).isEqualTo("helloworld");
+        verify(jdbcTemplate).update(anyString(), eq("1"));
+    }
+
+    @Test
+    public void commit_should_not_delete_session_if_content_is_not_saved() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        givenSession(jdbcTemplate, new UploadSession("1", "a.txt", TEXT_PLAIN_VALUE, null, newArrayList(new UploadChunk(0, 5))));
+        given(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq("1"), eq(0))).willReturn("hello".getBytes(UTF_8));
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        given(documentRepository.save(any(), any())).willThrow(new IllegalArgumentException());
+
+        try {
+            uploadSessionRepository(jdbcTemplate, documentRepository).commit("1");
+            fail("The content should not have been saved!");
+        } catch (IllegalArgumentException e) {
+            verify(jdbcTemplate, never()).update(anyString(), eq("1"));
+        }
+    }
+
+    private static UploadSessionRepository uploadSessionRepository(JdbcTemplate jdbcTemplate,
+        DocumentRepository documentRepository) {
+        return new UploadSessionRepository(jdbcTemplate, documentRepository, new DocumentProperties());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void givenSession(JdbcTemplate jdbcTemplate, UploadSession... sessions) {
+        List<UploadSession> result = newArrayList(sessions);
+        given(jdbcTemplate.query(anyString(), any(RowMapper.class), (Object[]) anyVararg())).willReturn(result);
+    }
+}
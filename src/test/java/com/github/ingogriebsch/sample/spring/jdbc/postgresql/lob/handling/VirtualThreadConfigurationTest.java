@@ -0,0 +1,52 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+public class VirtualThreadConfigurationTest {
+
+    @Test
+    public void virtualThreadConnectionPoolCustomizer_should_adjust_pool_if_virtual_threads_are_supported() {
+        assumeTrue(VirtualThreads.isSupported());
+
+        DataSource dataSource = dataSource();
+        BeanPostProcessor customizer = connectionPoolCustomizer(120000);
+        assertThat(customizer.postProcessAfterInitialization(dataSource, "dataSource")).isSameAs(dataSource);
+        assertThat(dataSource.isFairQueue()).isTrue();
+        assertThat(dataSource.getMaxWait()).isEqualTo(120000);
+    }
+
+    @Test
+    public void virtualThreadConnectionPoolCustomizer_should_keep_pool_if_virtual_threads_are_not_supported() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        DataSource dataSource = dataSource();
+        connectionPoolCustomizer(120000).postProcessAfterInitialization(dataSource, "dataSource");
+        assertThat(dataSource.isFairQueue()).isFalse();
+        assertThat(dataSource.getMaxWait()).isEqualTo(1000);
+    }
+
+    @Test
+    public void virtualThreadConnectionPoolCustomizer_should_ignore_other_beans() {
+        Object bean = new Object();
+        assertThat(connectionPoolCustomizer(120000).postProcessAfterInitialization(bean, "bean")).isSameAs(bean);
+    }
+
+    private static BeanPostProcessor connectionPoolCustomizer(long connectionWaitMillis) {
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setVirtualThreadsConnectionWaitMillis(connectionWaitMillis);
+        return new VirtualThreadConfiguration.ConnectionPoolCustomizer(() -> documentProperties);
+    }
+
+    private static DataSource dataSource() {
+        DataSource dataSource = new DataSource();
+        dataSource.setFairQueue(false);
+        dataSource.setMaxWait(1000);
+        return dataSource;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void newThreadPerTaskExecutor_should_run_tasks_on_named_virtual_threads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(10, SECONDS);
+            assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+            assertThat(thread.getName()).startsWith("test-");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void newThreadPerTaskExecutor_should_throw_exception_if_virtual_threads_are_not_supported() {
+        assumeFalse(VirtualThreads.isSupported());
+        VirtualThreads.newThreadPerTaskExecutor("test-");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void newThreadPerTaskExecutor_should_throw_exception_if_input_is_null() {
+        VirtualThreads.newThreadPerTaskExecutor(null);
+    }
+}
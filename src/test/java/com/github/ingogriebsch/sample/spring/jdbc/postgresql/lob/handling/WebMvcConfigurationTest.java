@@ -1,11 +1,16 @@
 package com.github.ingogriebsch.sample.spring.jdbc.postgresql.lob.handling;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @RunWith(MockitoJUnitRunner.class)
 public class WebMvcConfigurationTest {
@@ -20,4 +25,51 @@ public class WebMvcConfigurationTest {
         DocumentRepository documentRepository = Mockito.mock(DocumentRepository.class);
         assertThat(new WebMvcConfiguration().documentResourceHttpMessageConverter(documentRepository)).isNotNull();
     }
+
+    @Test(expected = NullPointerException.class)
+    public void documentStreamResourceHttpMessageConverter_should_throw_exception_if_input_is_null() {
+        new WebMvcConfiguration().documentStreamResourceHttpMessageConverter(null, null);
+    }
+
+    @Test
+    public void documentStreamResourceHttpMessageConverter_should_return_instance_if_input_is_given() {
+        DocumentRepository documentRepository = Mockito.mock(DocumentRepository.class);
+        assertThat(new WebMvcConfiguration().documentStreamResourceHttpMessageConverter(documentRepository, new ObjectMapper()))
+            .isNotNull();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void downloadTaskExecutor_should_throw_exception_if_input_is_null() {
+        new WebMvcConfiguration().downloadTaskExecutor(null);
+    }
+
+    @Test
+    public void downloadTaskExecutor_should_return_instance_matching_the_properties() {
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setDownloadThreads(4);
+        documentProperties.setDownloadQueueCapacity(8);
+
+        ThreadPoolTaskExecutor downloadTaskExecutor =
+            (ThreadPoolTaskExecutor) new WebMvcConfiguration().downloadTaskExecutor(documentProperties);
+        assertThat(downloadTaskExecutor.getCorePoolSize()).isEqualTo(4);
+        assertThat(downloadTaskExecutor.getMaxPoolSize()).isEqualTo(4);
+    }
+
+    @Test
+    public void downloadTaskExecutor_should_use_virtual_threads_if_enabled_and_supported() {
+        assumeTrue(VirtualThreads.isSupported());
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setVirtualThreadsEnabled(true);
+
+        assertThat(new WebMvcConfiguration().downloadTaskExecutor(documentProperties)).isInstanceOf(ConcurrentTaskExecutor.class);
+    }
+
+    @Test
+    public void downloadTaskExecutor_should_use_thread_pool_if_virtual_threads_are_not_supported() {
+        assumeFalse(VirtualThreads.isSupported());
+        DocumentProperties documentProperties = new DocumentProperties();
+        documentProperties.setVirtualThreadsEnabled(true);
+
+        assertThat(new WebMvcConfiguration().downloadTaskExecutor(documentProperties)).isInstanceOf(ThreadPoolTaskExecutor.class);
+    }
 }